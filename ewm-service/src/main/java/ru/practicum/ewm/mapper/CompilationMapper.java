@@ -7,6 +7,7 @@ import ru.practicum.ewm.model.Compilation;
 import ru.practicum.ewm.model.Event;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @UtilityClass
@@ -19,12 +20,14 @@ public class CompilationMapper {
                 .build();
     }
 
-    public CompilationDto toDtoFromCompilation(Compilation compilation) {
+    public CompilationDto toDtoFromCompilation(Compilation compilation, Map<Long, Long> views) {
         return CompilationDto.builder()
                 .id(compilation.getId())
                 .title(compilation.getTitle())
                 .pinned(compilation.getPinned())
-                .events(compilation.getEvents().stream().map(EventMapper::toShortFromEvent).collect(Collectors.toList()))
+                .events(compilation.getEvents().stream()
+                        .map(event -> EventMapper.toShortFromEvent(event, views))
+                        .collect(Collectors.toList()))
                 .build();
     }
 }
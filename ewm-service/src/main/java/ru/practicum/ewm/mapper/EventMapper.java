@@ -12,6 +12,7 @@ import ru.practicum.ewm.model.User;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @UtilityClass
 public class EventMapper {
@@ -58,6 +59,12 @@ public class EventMapper {
                 .build();
     }
 
+    public EventShortDto toShortFromEvent(Event event, Map<Long, Long> views) {
+        EventShortDto eventShortDto = toShortFromEvent(event);
+        eventShortDto.setViews(views.getOrDefault(event.getId(), event.getViews()));
+        return eventShortDto;
+    }
+
     public EventShortDto toShortFromEvent(Event event) {
         return EventShortDto.builder()
                 .annotation(event.getAnnotation())
@@ -6,6 +6,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import ru.practicum.ewm.client.stats.StatsClient;
 import ru.practicum.ewm.dto.compilation.CompilationDto;
 import ru.practicum.ewm.dto.compilation.NewCompilationDto;
 import ru.practicum.ewm.dto.compilation.UpdateCompilationRequest;
@@ -19,6 +20,7 @@ import ru.practicum.ewm.repository.EventRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -29,6 +31,7 @@ public class CompilationServiceImpl implements CompilationService {
 
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final StatsClient statsClient;
 
     @Override
     public List<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size) {
@@ -39,8 +42,12 @@ public class CompilationServiceImpl implements CompilationService {
         } else {
             compilations = compilationRepository.findAllByPinned(pinned, pageable);
         }
+        Map<Long, Long> views = statsClient.getEventViews(compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .map(Event::getId)
+                .collect(Collectors.toSet()));
         return compilations.stream()
-                .map(CompilationMapper::toDtoFromCompilation)
+                .map(compilation -> CompilationMapper.toDtoFromCompilation(compilation, views))
                 .collect(Collectors.toList());
     }
 
@@ -48,7 +55,7 @@ public class CompilationServiceImpl implements CompilationService {
     public CompilationDto getCompilationsById(Long compId) {
         Compilation compilation = compilationRepository.findById(compId).orElseThrow(() ->
                 new ObjectNotFoundException(String.format("Compilation with id=\"%s\" was not found", compId)));
-        return CompilationMapper.toDtoFromCompilation(compilation);
+        return toDto(compilation);
     }
 
     @Override
@@ -62,7 +69,7 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation compilation = CompilationMapper.toCompilationFromNew(newCompilationDto, eventList);
         try {
             Compilation savedCompilation = compilationRepository.save(compilation);
-            return CompilationMapper.toDtoFromCompilation(savedCompilation);
+            return toDto(savedCompilation);
         } catch (DataIntegrityViolationException e) {
             throw new FieldUniqueException(e.getMessage());
         }
@@ -89,9 +96,16 @@ public class CompilationServiceImpl implements CompilationService {
         }
         try {
             Compilation savedCompilation = compilationRepository.save(compilation);
-            return CompilationMapper.toDtoFromCompilation(savedCompilation);
+            return toDto(savedCompilation);
         } catch (DataIntegrityViolationException e) {
             throw new FieldUniqueException(e.getMessage());
         }
     }
+
+    private CompilationDto toDto(Compilation compilation) {
+        return CompilationMapper.toDtoFromCompilation(compilation, statsClient.getEventViews(compilation.getEvents()
+                .stream()
+                .map(Event::getId)
+                .collect(Collectors.toSet())));
+    }
 }
@@ -31,7 +31,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -95,8 +97,11 @@ public class EventServiceImpl implements EventService {
         }
         PageRequest pageRequest = PageRequest.of(from / size, size);
         List<Event> eventList = eventRepository.findAllByInitiatorId(userId, pageRequest);
+        Map<Long, Long> views = statsClient.getEventViews(eventList.stream()
+                .map(Event::getId)
+                .collect(Collectors.toList()));
         return eventList.stream()
-                .map(EventMapper::toShortFromEvent)
+                .map(event -> EventMapper.toShortFromEvent(event, views))
                 .collect(Collectors.toList());
     }
 
@@ -375,39 +380,41 @@ public class EventServiceImpl implements EventService {
             return cb.and(predicates.toArray(new Predicate[predicates.size()]));
         };
 
-        Page<Event> eventList = eventRepository.findAll(specification, pageable);
-        statsClient.createHit(EndpointHit.builder()
+        statsClient.createHitAsync(EndpointHit.builder()
                 .uri(httpServletRequest.getRequestURI())
                 .ip(httpServletRequest.getRemoteAddr())
                 .app(applicationName)
                 .timestamp(LocalDateTime.now())
-                .build());
+                .build()).exceptionally(e -> {
+            log.warn("Failed to save hit in stats-server: {}", e.getMessage());
+            return null;
+        });
+        Page<Event> eventList = eventRepository.findAll(specification, pageable);
+        Map<Long, Long> views = statsClient.getEventViewsAsync(eventList.stream()
+                .map(Event::getId)
+                .collect(Collectors.toList())).join();
         return eventList.stream()
-                .map(EventMapper::toShortFromEvent)
+                .map(event -> EventMapper.toShortFromEvent(event, views))
                 .collect(Collectors.toList());
     }
 
     @Override
     public EventFullDto getEventById(Long eventId, HttpServletRequest httpServletRequest) {
-        Event event = eventRepository.findFirstByIdAndState(eventId, EventStatus.PUBLISHED);
-        if (event == null) {
-            throw new ObjectNotFoundException(String.format("Event with id=\"%s\" was not found", eventId));
-        }
-        Long views = (long) statsClient.getViewStats(LocalDateTime.now().minusYears(100)
-                        .format(dateFormatter),
-                LocalDateTime.now().plusYears(100).format(dateFormatter),
-                true, new String[]{httpServletRequest.getRequestURI()}).size();
-        statsClient.createHit(EndpointHit.builder()
+        CompletableFuture<Long> views = statsClient.createHitAndGetViewsAsync(EndpointHit.builder()
                 .uri(httpServletRequest.getRequestURI())
                 .ip(httpServletRequest.getRemoteAddr())
                 .app(applicationName)
                 .timestamp(LocalDateTime.now())
-                .build());
-        Long newViews = (long) statsClient.getViewStats(LocalDateTime.now().minusYears(100)
-                        .format(dateFormatter),
-                LocalDateTime.now().plusYears(100).format(dateFormatter),
-                true, new String[]{httpServletRequest.getRequestURI()}).size();
-        if (newViews > views) {
+                .build()).exceptionally(e -> {
+            log.warn("Failed to save hit in stats-server: {}", e.getMessage());
+            return null;
+        });
+        Event event = eventRepository.findFirstByIdAndState(eventId, EventStatus.PUBLISHED);
+        if (event == null) {
+            throw new ObjectNotFoundException(String.format("Event with id=\"%s\" was not found", eventId));
+        }
+        Long newViews = views.join();
+        if (newViews != null && (event.getViews() == null || newViews > event.getViews())) {
             event.setViews(newViews);
             eventRepository.save(event);
         }
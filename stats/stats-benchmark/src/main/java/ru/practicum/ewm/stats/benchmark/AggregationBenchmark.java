@@ -0,0 +1,95 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.mapper.HitMapper;
+import ru.practicum.ewm.stats.mapper.IpAddressMapper;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.HyperLogLog;
+import ru.practicum.ewm.stats.model.StatKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+    @Param({"10000", "100000"})
+    private int size;
+    @Param({"100", "10000"})
+    private int uriCardinality;
+    @Param({"1000", "100000"})
+    private int ipCardinality;
+
+    private List<Hit> hits;
+    private Map<String, byte[]> ipBytes;
+
+    @Setup
+    public void setUp() {
+        hits = HitDatasets.generate(size, uriCardinality, ipCardinality, 42).stream()
+                .map(HitMapper::toHit)
+                .collect(Collectors.toList());
+        ipBytes = new HashMap<>();
+        hits.forEach(hit -> ipBytes.computeIfAbsent(hit.getIp(), IpAddressMapper::toBytes));
+    }
+
+    @Benchmark
+    public List<ViewStats> streamNonUnique() {
+        return StreamAggregation.convert(hits, false);
+    }
+
+    @Benchmark
+    public List<ViewStats> streamUnique() {
+        return StreamAggregation.convert(hits, true);
+    }
+
+    @Benchmark
+    public List<ViewStats> hashNonUnique() {
+        Map<StatKey, Long> counts = new HashMap<>();
+        for (Hit hit : hits) {
+            counts.merge(new StatKey(hit.getApp(), hit.getUri()), 1L, Long::sum);
+        }
+        return sorted(counts);
+    }
+
+    @Benchmark
+    public List<ViewStats> hashUnique() {
+        Map<StatKey, Set<String>> ips = new HashMap<>();
+        for (Hit hit : hits) {
+            ips.computeIfAbsent(new StatKey(hit.getApp(), hit.getUri()), key -> new HashSet<>()).add(hit.getIp());
+        }
+        Map<StatKey, Long> counts = new HashMap<>();
+        ips.forEach((key, values) -> counts.put(key, (long) values.size()));
+        return sorted(counts);
+    }
+
+    @Benchmark
+    public List<ViewStats> sketchUnique() {
+        Map<StatKey, HyperLogLog> sketches = new HashMap<>();
+        for (Hit hit : hits) {
+            sketches.computeIfAbsent(new StatKey(hit.getApp(), hit.getUri()), key -> new HyperLogLog())
+                    .add(ipBytes.get(hit.getIp()));
+        }
+        Map<StatKey, Long> counts = new HashMap<>();
+        sketches.forEach((key, sketch) -> counts.put(key, sketch.estimate()));
+        return sorted(counts);
+    }
+
+    private List<ViewStats> sorted(Map<StatKey, Long> counts) {
+        List<ViewStats> result = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> result.add(new ViewStats(key.getApp(), key.getUri(), count)));
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+}
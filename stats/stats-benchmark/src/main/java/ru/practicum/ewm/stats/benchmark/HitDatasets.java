@@ -0,0 +1,31 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.ewm.dto.stats.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@UtilityClass
+public class HitDatasets {
+    private static final String[] APPS = {"ewm-main-service", "ewm-admin-service", "ewm-mobile-service"};
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    public List<EndpointHit> generate(int size, int uriCardinality, int ipCardinality, long seed) {
+        Random random = new Random(seed);
+        List<EndpointHit> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int uri = random.nextInt(uriCardinality);
+            int ip = random.nextInt(ipCardinality);
+            hits.add(EndpointHit.builder()
+                    .app(APPS[uri % APPS.length])
+                    .uri("/events/" + uri)
+                    .ip("10." + (ip >> 16 & 0xFF) + "." + (ip >> 8 & 0xFF) + "." + (ip & 0xFF))
+                    .timestamp(START.plusSeconds(i))
+                    .build());
+        }
+        return hits;
+    }
+}
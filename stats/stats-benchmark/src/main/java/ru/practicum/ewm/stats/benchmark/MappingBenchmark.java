@@ -0,0 +1,74 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.ewm.dto.stats.BinaryWireFormat;
+import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.stats.mapper.HitMapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    private static final TypeReference<List<EndpointHit>> HITS = new TypeReference<>() {
+    };
+
+    @Param({"1000", "100000"})
+    private int size;
+    @Param({"1000"})
+    private int uriCardinality;
+    @Param({"10000"})
+    private int ipCardinality;
+
+    private List<EndpointHit> endpointHits;
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private byte[] json;
+    private byte[] cbor;
+
+    @Setup
+    public void setUp() throws IOException {
+        endpointHits = HitDatasets.generate(size, uriCardinality, ipCardinality, 42);
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborMapper = BinaryWireFormat.createMapper();
+        json = jsonMapper.writeValueAsBytes(endpointHits);
+        cbor = cborMapper.writeValueAsBytes(endpointHits);
+    }
+
+    @Benchmark
+    public void toHit(Blackhole blackhole) {
+        for (EndpointHit endpointHit : endpointHits) {
+            blackhole.consume(HitMapper.toHit(endpointHit));
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() throws IOException {
+        return jsonMapper.writeValueAsBytes(endpointHits);
+    }
+
+    @Benchmark
+    public List<EndpointHit> jsonDeserialize() throws IOException {
+        return jsonMapper.readValue(json, HITS);
+    }
+
+    @Benchmark
+    public byte[] cborSerialize() throws IOException {
+        return cborMapper.writeValueAsBytes(endpointHits);
+    }
+
+    @Benchmark
+    public List<EndpointHit> cborDeserialize() throws IOException {
+        return cborMapper.readValue(cbor, HITS);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.ewm.stats.benchmark;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.model.Hit;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@UtilityClass
+public class StreamAggregation {
+    public List<ViewStats> convert(List<Hit> list, Boolean unique) {
+        Map<String, List<Hit>> stringListEndpointHitMap;
+        List<ViewStats> viewStatsList;
+        if (unique) {
+            stringListEndpointHitMap = list.stream()
+                    .collect(Collectors.groupingBy(Hit::getUri));
+            viewStatsList = stringListEndpointHitMap.keySet().stream()
+                    .map(key -> ViewStats.builder()
+                            .uri(key)
+                            .app(stringListEndpointHitMap.get(key).get(0).getApp())
+                            .hits(stringListEndpointHitMap.get(key).stream()
+                                    .map(Hit::getIp)
+                                    .distinct()
+                                    .count())
+                            .build())
+                    .collect(Collectors.toList());
+            return viewStatsList.stream()
+                    .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                    .collect(Collectors.toList());
+        } else {
+            stringListEndpointHitMap = list.stream()
+                    .collect(Collectors.groupingBy(Hit::getUri));
+            viewStatsList = stringListEndpointHitMap.keySet().stream()
+                    .map(key -> ViewStats.builder()
+                            .uri(key)
+                            .app(stringListEndpointHitMap.get(key).get(0).getApp())
+                            .hits((long) stringListEndpointHitMap.get(key).size())
+                            .build())
+                    .collect(Collectors.toList());
+            return viewStatsList.stream()
+                    .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.ewm.client.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.ewm.dto.stats.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Slf4j
+public class AsyncHitSender {
+    private final String shard;
+    private final Consumer<List<EndpointHit>> delivery;
+    private final BlockingQueue<EndpointHit> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long shutdownTimeoutMs;
+    private final Counter queued;
+    private final Counter sent;
+    private final Counter dropped;
+    private final Thread sender;
+    private volatile boolean running;
+
+    public AsyncHitSender(String shard, Consumer<List<EndpointHit>> delivery, MeterRegistry meterRegistry,
+                          int capacity, int batchSize, long flushIntervalMs, int maxRetries, long retryBackoffMs,
+                          long shutdownTimeoutMs) {
+        this.shard = shard;
+        this.delivery = delivery;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.queued = meterRegistry.counter("stats.client.hits.queued", "shard", shard);
+        this.sent = meterRegistry.counter("stats.client.hits.sent", "shard", shard);
+        this.dropped = meterRegistry.counter("stats.client.hits.dropped", "shard", shard);
+        Gauge.builder("stats.client.hits.pending", queue, BlockingQueue::size)
+                .tag("shard", shard)
+                .register(meterRegistry);
+        this.sender = new Thread(this::sendLoop, "stats-client-sender-" + shard);
+        this.sender.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        sender.start();
+    }
+
+    public void submit(EndpointHit endpointHit) {
+        if (running && queue.offer(endpointHit)) {
+            queued.increment();
+        } else {
+            dropped.increment();
+            log.debug("Очередь отправки статистики переполнена, хит отброшен: {}", endpointHit.getUri());
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        sender.join(shutdownTimeoutMs);
+        if (!queue.isEmpty()) {
+            dropped.increment(queue.size());
+            log.error("При остановке не отправлено хитов на {}: {}", shard, queue.size());
+        }
+    }
+
+    private void sendLoop() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                EndpointHit first = running ? queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            batch.clear();
+        }
+    }
+
+    private void send(List<EndpointHit> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                delivery.accept(batch);
+                sent.increment(batch.size());
+                return;
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                if (attempt >= maxRetries || !running) {
+                    dropBatch(batch, e);
+                    return;
+                }
+                log.warn("Не удалось отправить статистику на {}, попытка {} из {}: {}", shard, attempt + 1,
+                        maxRetries + 1, e.getMessage());
+                Thread.sleep(retryBackoffMs * (1L << attempt));
+            } catch (HttpClientErrorException e) {
+                if (batch.size() == 1) {
+                    dropBatch(batch, e);
+                    return;
+                }
+                int middle = batch.size() / 2;
+                send(batch.subList(0, middle));
+                send(batch.subList(middle, batch.size()));
+                return;
+            } catch (RestClientException e) {
+                dropBatch(batch, e);
+                return;
+            }
+        }
+    }
+
+    private void dropBatch(List<EndpointHit> batch, RestClientException e) {
+        dropped.increment(batch.size());
+        log.error("Пакет статистики для {} отброшен, хитов: {}", shard, batch.size(), e);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.ewm.client.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.dto.stats.WeightedHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+@Slf4j
+public class HitAggregator {
+    private final String shard;
+    private final Consumer<List<WeightedHit>> delivery;
+    private final int maxRecords;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final Counter queued;
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter records;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService flusher;
+    private Map<RecordKey, WeightedHit> pending = new ConcurrentHashMap<>();
+
+    public HitAggregator(String shard, Consumer<List<WeightedHit>> delivery, MeterRegistry meterRegistry,
+                         int maxRecords, long flushIntervalMs, long shutdownTimeoutMs) {
+        this.shard = shard;
+        this.delivery = delivery;
+        this.maxRecords = maxRecords;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.queued = meterRegistry.counter("stats.client.hits.queued", "shard", shard);
+        this.sent = meterRegistry.counter("stats.client.hits.sent", "shard", shard);
+        this.dropped = meterRegistry.counter("stats.client.hits.dropped", "shard", shard);
+        this.records = meterRegistry.counter("stats.client.records.sent", "shard", shard);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-aggregator-" + shard);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(EndpointHit endpointHit) {
+        RecordKey key = new RecordKey(endpointHit.getApp(), endpointHit.getUri(), endpointHit.getIp());
+        lock.readLock().lock();
+        try {
+            if (!pending.containsKey(key) && pending.size() >= maxRecords) {
+                dropped.increment();
+                log.debug("Буфер агрегации статистики переполнен, хит отброшен: {}", endpointHit.getUri());
+                return;
+            }
+            pending.merge(key, new WeightedHit(endpointHit.getIp(), endpointHit.getApp(), endpointHit.getUri(), 1,
+                    endpointHit.getTimestamp()), HitAggregator::combine);
+            queued.increment();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+        flush();
+        long lost = pending.values().stream().mapToLong(WeightedHit::getCount).sum();
+        if (lost > 0) {
+            dropped.increment(lost);
+            log.error("При остановке не отправлено хитов на {}: {}", shard, lost);
+        }
+    }
+
+    private void flush() {
+        Map<RecordKey, WeightedHit> batch;
+        lock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<WeightedHit> undelivered = new ArrayList<>();
+        deliver(new ArrayList<>(batch.values()), undelivered);
+        requeue(undelivered);
+    }
+
+    private void deliver(List<WeightedHit> weightedHits, List<WeightedHit> undelivered) {
+        try {
+            delivery.accept(weightedHits);
+            sent.increment(weightedHits.stream().mapToLong(WeightedHit::getCount).sum());
+            records.increment(weightedHits.size());
+        } catch (HttpClientErrorException e) {
+            if (weightedHits.size() == 1) {
+                dropped.increment(weightedHits.get(0).getCount());
+                log.error("Агрегированная запись статистики для {} отброшена: {}", shard,
+                        weightedHits.get(0).getUri(), e);
+                return;
+            }
+            int middle = weightedHits.size() / 2;
+            deliver(weightedHits.subList(0, middle), undelivered);
+            deliver(weightedHits.subList(middle, weightedHits.size()), undelivered);
+        } catch (RestClientException e) {
+            log.warn("Не удалось отправить агрегированную статистику на {}, записей: {}: {}", shard,
+                    weightedHits.size(), e.getMessage());
+            undelivered.addAll(weightedHits);
+        }
+    }
+
+    private void requeue(List<WeightedHit> undelivered) {
+        lock.readLock().lock();
+        try {
+            for (WeightedHit weightedHit : undelivered) {
+                RecordKey key = new RecordKey(weightedHit.getApp(), weightedHit.getUri(), weightedHit.getIp());
+                if (!pending.containsKey(key) && pending.size() >= maxRecords) {
+                    dropped.increment(weightedHit.getCount());
+                } else {
+                    pending.merge(key, weightedHit, HitAggregator::combine);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static WeightedHit combine(WeightedHit left, WeightedHit right) {
+        return new WeightedHit(left.getIp(), left.getApp(), left.getUri(), left.getCount() + right.getCount(),
+                left.getFirstTimestamp().isBefore(right.getFirstTimestamp())
+                        ? left.getFirstTimestamp() : right.getFirstTimestamp());
+    }
+
+    @Value
+    private static class RecordKey {
+        String app;
+        String uri;
+        String ip;
+    }
+}
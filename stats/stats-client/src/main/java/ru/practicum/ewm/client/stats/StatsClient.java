@@ -1,44 +1,564 @@
 package ru.practicum.ewm.client.stats;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.ewm.dto.stats.BinaryWireFormat;
 import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.dto.stats.ViewCount;
 import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.dto.stats.WeightedHit;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class StatsClient {
-    private final String serverUrl;
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ShardRing shards;
     private final RestTemplate rest;
+    private final StatsHttpTransport transport;
+    private final CloseableHttpAsyncClient asyncHttp;
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = BinaryWireFormat.createMapper();
+    private final ExecutorService fanOutExecutor;
+    private final long fanOutTimeoutMs;
+    private final Map<String, AsyncHitSender> asyncHitSenders = new LinkedHashMap<>();
+    private final Map<String, HitAggregator> hitAggregators = new LinkedHashMap<>();
+    private final ViewCountCache viewCountCache;
+    private final ExecutorService refreshExecutor;
+    private final Map<ViewStatsQuery, CompletableFuture<List<ViewStats>>> inFlightQueries =
+            new ConcurrentHashMap<>();
+    private volatile boolean binaryWireFormat;
+
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-server.wire-format}") String wireFormat,
+                       @Value("${stats-server.async.enabled}") boolean async,
+                       @Value("${stats-server.async.queue-capacity}") int queueCapacity,
+                       @Value("${stats-server.async.batch-size}") int batchSize,
+                       @Value("${stats-server.async.flush-interval-ms}") long flushIntervalMs,
+                       @Value("${stats-server.async.max-retries}") int maxRetries,
+                       @Value("${stats-server.async.retry-backoff-ms}") long retryBackoffMs,
+                       @Value("${stats-server.async.shutdown-timeout-ms}") long shutdownTimeoutMs,
+                       @Value("${stats-server.aggregation.enabled}") boolean aggregation,
+                       @Value("${stats-server.aggregation.flush-interval-ms}") long aggregationFlushIntervalMs,
+                       @Value("${stats-server.aggregation.max-records}") int aggregationMaxRecords,
+                       @Value("${stats-server.cache.enabled}") boolean cacheEnabled,
+                       @Value("${stats-server.cache.ttl-ms}") long cacheTtlMs,
+                       @Value("${stats-server.cache.max-size}") int cacheMaxSize,
+                       @Value("${stats-server.fan-out.max-threads}") int fanOutMaxThreads,
+                       @Value("${stats-server.fan-out.timeout-ms}") long fanOutTimeoutMs,
+                       StatsHttpTransport transport,
+                       MeterRegistry meterRegistry) {
+        this.rest = new RestTemplate(transport.getRequestFactory());
+        this.transport = transport;
+        this.rest.getMessageConverters().removeIf(converter ->
+                converter instanceof MappingJackson2CborHttpMessageConverter);
+        this.rest.getMessageConverters().add(0,
+                new MappingJackson2CborHttpMessageConverter(BinaryWireFormat.createMapper()));
+        this.asyncHttp = transport.getAsyncClient();
+        this.shards = ShardRing.parse(serverUrl);
+        this.fanOutExecutor = new ThreadPoolExecutor(0, fanOutMaxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.fanOutTimeoutMs = fanOutTimeoutMs;
+        this.binaryWireFormat = "cbor".equalsIgnoreCase(wireFormat);
+        if (async) {
+            shards.getShards().forEach(shard -> asyncHitSenders.put(shard, new AsyncHitSender(shard,
+                    hits -> post(shard, "/hits", hits, Object.class), meterRegistry, queueCapacity, batchSize,
+                    flushIntervalMs, maxRetries, retryBackoffMs, shutdownTimeoutMs)));
+        }
+        this.viewCountCache = cacheEnabled ? new ViewCountCache(cacheTtlMs, cacheMaxSize) : null;
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (aggregation) {
+            shards.getShards().forEach(shard -> hitAggregators.put(shard, new HitAggregator(shard,
+                    hits -> post(shard, "/hits/weighted", hits, Object.class), meterRegistry, aggregationMaxRecords,
+                    aggregationFlushIntervalMs, shutdownTimeoutMs)));
+        }
+        if (!asyncHitSenders.isEmpty()) {
+            asyncHitSenders.values().forEach(AsyncHitSender::start);
+            log.info("Асинхронная отправка статистики включена, размер очереди на шард: {}", queueCapacity);
+        }
+        if (!hitAggregators.isEmpty()) {
+            hitAggregators.values().forEach(HitAggregator::start);
+            log.info("Агрегация статистики в пределах интервала отправки включена, интервал: {} мс",
+                    aggregationFlushIntervalMs);
+        }
+    }
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl) {
-        this.rest = new RestTemplate();
-        this.serverUrl = serverUrl;
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (HitAggregator hitAggregator : hitAggregators.values()) {
+            hitAggregator.stop();
+        }
+        for (AsyncHitSender asyncHitSender : asyncHitSenders.values()) {
+            asyncHitSender.stop();
+        }
+        refreshExecutor.shutdown();
+        fanOutExecutor.shutdown();
     }
 
     public List<ViewStats> getViewStats(String start, String end, Boolean unique, String[] uris) {
-        Map<String, Object> parameters = Map.of(
-                "start", start,
-                "end", end,
-                "unique", unique,
-                "uris", uris
-        );
-
-        ResponseEntity<List<ViewStats>> responseEntity = rest.exchange(serverUrl +
-                        "/stats?start={start}&end={end}&uris={uris}&unique={unique}", HttpMethod.GET, null,
+        ViewStatsQuery query = new ViewStatsQuery(start, end, unique, uris == null ? List.of() : List.of(uris));
+        CompletableFuture<List<ViewStats>> call = new CompletableFuture<>();
+        CompletableFuture<List<ViewStats>> inFlight = inFlightQueries.putIfAbsent(query, call);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            List<ViewStats> viewStats = fetchViewStats(start, end, unique, uris);
+            call.complete(viewStats);
+            return viewStats;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightQueries.remove(query, call);
+        }
+    }
+
+    public CompletableFuture<List<ViewStats>> getViewStatsAsync(String start, String end, Boolean unique,
+                                                                String[] uris) {
+        ViewStatsQuery query = new ViewStatsQuery(start, end, unique, uris == null ? List.of() : List.of(uris));
+        CompletableFuture<List<ViewStats>> call = new CompletableFuture<>();
+        CompletableFuture<List<ViewStats>> inFlight = inFlightQueries.putIfAbsent(query, call);
+        if (inFlight != null) {
+            return inFlight.copy();
+        }
+        List<CompletableFuture<List<ViewStats>>> parts = urisByShard(uris).entrySet().stream()
+                .map(request -> getViewStatsAsync(request.getKey(), start, end, unique, request.getValue()))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> {
+                    inFlightQueries.remove(query, call);
+                    if (error != null) {
+                        call.completeExceptionally(unwrap(error));
+                    } else {
+                        call.complete(merge(parts.stream().map(CompletableFuture::join).collect(Collectors.toList())));
+                    }
+                });
+        return call.copy();
+    }
+
+    private List<ViewStats> fetchViewStats(String start, String end, Boolean unique, String[] uris) {
+        return merge(fanOut(urisByShard(uris), (shard, shardUris) -> getViewStats(shard, start, end, unique,
+                shardUris)));
+    }
+
+    private Map<String, List<String>> urisByShard(String[] uris) {
+        Map<String, List<String>> urisByShard = new LinkedHashMap<>();
+        if (uris == null || uris.length == 0) {
+            shards.getShards().forEach(shard -> urisByShard.put(shard, List.of()));
+        } else {
+            for (String uri : uris) {
+                urisByShard.computeIfAbsent(shards.shardFor(uri), shard -> new ArrayList<>()).add(uri);
+            }
+        }
+        return urisByShard;
+    }
+
+    private List<ViewStats> merge(List<List<ViewStats>> parts) {
+        List<ViewStats> viewStats = new ArrayList<>();
+        parts.forEach(viewStats::addAll);
+        viewStats.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return Collections.unmodifiableList(viewStats);
+    }
+
+    public Map<Long, Long> getEventViews(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+        List<String> uris = toEventUris(eventIds);
+        Map<String, Long> viewsByUri;
+        try {
+            viewsByUri = viewCountCache == null ? loadViews(uris)
+                    : viewCountCache.getAll(uris, this::loadViews, refreshExecutor);
+        } catch (RestClientException e) {
+            log.warn("Не удалось получить просмотры событий из stats-server: {}", e.getMessage());
+            return Map.of();
+        }
+        return toEventViews(viewsByUri);
+    }
+
+    public CompletableFuture<Map<Long, Long>> getEventViewsAsync(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        List<String> uris = toEventUris(eventIds);
+        CompletableFuture<Map<String, Long>> viewsByUri = viewCountCache == null ? loadViewsAsync(uris)
+                : viewCountCache.getAllAsync(uris, this::loadViewsAsync);
+        return viewsByUri.thenApply(this::toEventViews)
+                .exceptionally(error -> {
+                    log.warn("Не удалось получить просмотры событий из stats-server: {}", unwrap(error).getMessage());
+                    return Map.of();
+                });
+    }
+
+    public void createHit(EndpointHit endpointHit) {
+        if (!hitAggregators.isEmpty()) {
+            hitAggregators.get(shards.shardFor(endpointHit.getUri())).add(endpointHit);
+            return;
+        }
+        if (!asyncHitSenders.isEmpty()) {
+            asyncHitSenders.get(shards.shardFor(endpointHit.getUri())).submit(endpointHit);
+            return;
+        }
+        post(shards.shardFor(endpointHit.getUri()), "/hit", endpointHit, Object.class);
+    }
+
+    public CompletableFuture<Void> createHitAsync(EndpointHit endpointHit) {
+        if (!hitAggregators.isEmpty() || !asyncHitSenders.isEmpty()) {
+            createHit(endpointHit);
+            return CompletableFuture.completedFuture(null);
+        }
+        return postAsync(shards.shardFor(endpointHit.getUri()), "/hit", endpointHit, Void.class);
+    }
+
+    public CompletableFuture<ViewCount> createHitAndCountAsync(EndpointHit endpointHit) {
+        return postAsync(shards.shardFor(endpointHit.getUri()), "/hit?returnCounts=true", endpointHit,
+                ViewCount.class)
+                .thenApply(this::cacheViewCount);
+    }
+
+    public CompletableFuture<Long> createHitAndGetViewsAsync(EndpointHit endpointHit) {
+        Long cached = viewCountCache == null ? null : viewCountCache.getIfFresh(endpointHit.getUri());
+        if (cached == null) {
+            return createHitAndCountAsync(endpointHit)
+                    .thenApply(viewCount -> viewCount == null ? null : viewCount.getUniqueHits());
+        }
+        createHitAsync(endpointHit).exceptionally(error -> {
+            log.warn("Не удалось отправить хит в stats-server: {}", unwrap(error).getMessage());
+            return null;
+        });
+        return CompletableFuture.completedFuture(cached);
+    }
+
+    public ViewCount createHitAndCount(EndpointHit endpointHit) {
+        return cacheViewCount(post(shards.shardFor(endpointHit.getUri()), "/hit?returnCounts=true", endpointHit,
+                ViewCount.class));
+    }
+
+    public void createHits(List<EndpointHit> endpointHits) {
+        Map<String, List<EndpointHit>> hitsByShard = endpointHits.stream()
+                .collect(Collectors.groupingBy(endpointHit -> shards.shardFor(endpointHit.getUri()),
+                        LinkedHashMap::new, Collectors.toList()));
+        fanOut(hitsByShard, (shard, shardHits) -> {
+            post(shard, "/hits", shardHits, Object.class);
+            return null;
+        });
+    }
+
+    public void createWeightedHits(List<WeightedHit> weightedHits) {
+        Map<String, List<WeightedHit>> hitsByShard = weightedHits.stream()
+                .collect(Collectors.groupingBy(weightedHit -> shards.shardFor(weightedHit.getUri()),
+                        LinkedHashMap::new, Collectors.toList()));
+        fanOut(hitsByShard, (shard, shardHits) -> post(shard, "/hits/weighted", shardHits, Object.class));
+    }
+
+    private ViewCount cacheViewCount(ViewCount viewCount) {
+        if (viewCountCache != null && viewCount != null && viewCount.getUniqueHits() != null) {
+            viewCountCache.put(viewCount.getUri(), viewCount.getUniqueHits());
+        }
+        return viewCount;
+    }
+
+    private List<String> toEventUris(Collection<Long> eventIds) {
+        return eventIds.stream()
+                .distinct()
+                .map(eventId -> EVENT_URI_PREFIX + eventId)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Long> toEventViews(Map<String, Long> viewsByUri) {
+        Map<Long, Long> views = new HashMap<>();
+        viewsByUri.forEach((uri, hits) -> views.put(Long.valueOf(uri.substring(EVENT_URI_PREFIX.length())), hits));
+        return views;
+    }
+
+    private Map<String, Long> loadViews(List<String> uris) {
+        LocalDateTime now = LocalDateTime.now();
+        return sumByUri(getViewStats(now.minusYears(100).format(DATE_FORMATTER),
+                now.plusYears(100).format(DATE_FORMATTER), true, uris.toArray(String[]::new)));
+    }
+
+    private CompletableFuture<Map<String, Long>> loadViewsAsync(List<String> uris) {
+        LocalDateTime now = LocalDateTime.now();
+        return getViewStatsAsync(now.minusYears(100).format(DATE_FORMATTER),
+                now.plusYears(100).format(DATE_FORMATTER), true, uris.toArray(String[]::new))
+                .thenApply(this::sumByUri);
+    }
+
+    private Map<String, Long> sumByUri(List<ViewStats> viewStats) {
+        Map<String, Long> views = new HashMap<>();
+        viewStats.forEach(stats -> views.merge(stats.getUri(), stats.getHits(), Long::sum));
+        return views;
+    }
+
+    private List<ViewStats> getViewStats(String serverUrl, String start, String end, Boolean unique,
+                                         List<String> uris) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("start", start);
+        parameters.put("end", end);
+        parameters.put("unique", unique);
+        String url = serverUrl + "/stats?start={start}&end={end}&unique={unique}";
+        if (!uris.isEmpty()) {
+            parameters.put("uris", uris.toArray(String[]::new));
+            url += "&uris={uris}";
+        }
+
+        ResponseEntity<List<ViewStats>> responseEntity = rest.exchange(url, HttpMethod.GET, null,
                 new ParameterizedTypeReference<>() {
                 }, parameters);
-        return responseEntity.getBody();
+        return responseEntity.getBody() == null ? List.of() : responseEntity.getBody();
     }
 
-    public void createHit(EndpointHit endpointHit) {
-        rest.exchange(serverUrl + "/hit", HttpMethod.POST, new HttpEntity<>(endpointHit), Object.class);
+    private CompletableFuture<List<ViewStats>> getViewStatsAsync(String serverUrl, String start, String end,
+                                                                 Boolean unique, List<String> uris) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl(serverUrl)
+                .path("/stats")
+                .queryParam("start", start)
+                .queryParam("end", end)
+                .queryParam("unique", unique);
+        if (!uris.isEmpty()) {
+            uri.queryParam("uris", uris.toArray());
+        }
+        HttpGet request = new HttpGet(uri.build().encode().toUri());
+        request.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        return send(request).thenApply(body -> body.length == 0 ? List.<ViewStats>of()
+                : read(body, new TypeReference<List<ViewStats>>() {
+                }));
+    }
+
+    private <T> CompletableFuture<T> postAsync(String serverUrl, String path, Object body, Class<T> responseType) {
+        if (!binaryWireFormat) {
+            return postAsync(serverUrl, path, body, responseType, jsonMapper, MediaType.APPLICATION_JSON_VALUE);
+        }
+        return postAsync(serverUrl, path, body, responseType, cborMapper, BinaryWireFormat.MEDIA_TYPE)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = unwrap(error);
+                    if (!(cause instanceof HttpClientErrorException.UnsupportedMediaType)) {
+                        return CompletableFuture.<T>failedFuture(cause);
+                    }
+                    log.warn("stats-server не поддерживает {}, переключение на JSON", BinaryWireFormat.MEDIA_TYPE);
+                    binaryWireFormat = false;
+                    return postAsync(serverUrl, path, body, responseType, jsonMapper,
+                            MediaType.APPLICATION_JSON_VALUE);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<T> postAsync(String serverUrl, String path, Object body, Class<T> responseType,
+                                               ObjectMapper bodyMapper, String contentType) {
+        byte[] payload;
+        try {
+            payload = bodyMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RestClientException("Не удалось сериализовать запрос", e));
+        }
+        HttpPost request = new HttpPost(serverUrl + path);
+        request.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        request.setEntity(new ByteArrayEntity(payload, ContentType.create(contentType)));
+        return send(request).thenApply(response -> responseType == Void.class || response.length == 0 ? null
+                : read(response, jsonMapper.constructType(responseType)));
+    }
+
+    private CompletableFuture<byte[]> send(HttpUriRequest request) {
+        CompletableFuture<byte[]> body = new CompletableFuture<>();
+        asyncHttp.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    body.complete(readBody(response));
+                } catch (IOException e) {
+                    failed(e);
+                } catch (RuntimeException e) {
+                    body.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception cause) {
+                body.completeExceptionally(new ResourceAccessException("I/O error on " + request.getMethod()
+                        + " request for \"" + request.getURI() + "\": " + cause,
+                        cause instanceof IOException ? (IOException) cause : new IOException(cause)));
+            }
+
+            @Override
+            public void cancelled() {
+                failed(new IOException("Запрос отменён"));
+            }
+        });
+        return body;
+    }
+
+    private byte[] readBody(HttpResponse response) throws IOException {
+        byte[] body = response.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+        HttpStatus status = HttpStatus.valueOf(response.getStatusLine().getStatusCode());
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, status.getReasonPhrase(), HttpHeaders.EMPTY, body,
+                    StandardCharsets.UTF_8);
+        }
+        if (status.is5xxServerError()) {
+            throw HttpServerErrorException.create(status, status.getReasonPhrase(), HttpHeaders.EMPTY, body,
+                    StandardCharsets.UTF_8);
+        }
+        return body;
+    }
+
+    private <T> T read(byte[] body, TypeReference<T> type) {
+        return read(body, jsonMapper.getTypeFactory().constructType(type));
+    }
+
+    private <T> T read(byte[] body, JavaType type) {
+        try {
+            return jsonMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new RestClientException("Не удалось разобрать ответ stats-server", e);
+        }
+    }
+
+    private Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private <T, R> List<R> fanOut(Map<String, T> requests, BiFunction<String, T, R> call) {
+        List<Map.Entry<String, T>> entries = new ArrayList<>(requests.entrySet());
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fanOutTimeoutMs);
+        List<CompletableFuture<R>> futures = new ArrayList<>(entries.size());
+        for (Map.Entry<String, T> request : entries) {
+            futures.add(CompletableFuture.supplyAsync(() -> transport.withDeadline(deadline,
+                    () -> call.apply(request.getKey(), request.getValue())), fanOutExecutor));
+        }
+        List<R> results = new ArrayList<>(entries.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(join(future, deadline));
+        }
+        return results;
+    }
+
+    private <R> R join(CompletableFuture<R> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RestClientException("Ошибка запроса к stats-server", e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResourceAccessException("Истекло время ожидания ответа stats-server: " + fanOutTimeoutMs
+                    + " мс");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Ожидание ответа stats-server прервано");
+        }
+    }
+
+    private <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> T post(String serverUrl, String path, Object body, Class<T> responseType) {
+        if (binaryWireFormat) {
+            try {
+                return rest.exchange(serverUrl + path, HttpMethod.POST, withContentType(body,
+                        MediaType.valueOf(BinaryWireFormat.MEDIA_TYPE)), responseType).getBody();
+            } catch (HttpClientErrorException.UnsupportedMediaType e) {
+                log.warn("stats-server не поддерживает {}, переключение на JSON", BinaryWireFormat.MEDIA_TYPE);
+                binaryWireFormat = false;
+            }
+        }
+        return rest.exchange(serverUrl + path, HttpMethod.POST, withContentType(body, MediaType.APPLICATION_JSON),
+                responseType).getBody();
+    }
+
+    private HttpEntity<Object> withContentType(Object body, MediaType mediaType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        return new HttpEntity<>(body, headers);
+    }
+
+    @lombok.Value
+    private static class ViewStatsQuery {
+        String start;
+        String end;
+        Boolean unique;
+        List<String> uris;
     }
-}
\ No newline at end of file
+}
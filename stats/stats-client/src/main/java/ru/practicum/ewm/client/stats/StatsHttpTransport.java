@@ -0,0 +1,135 @@
+package ru.practicum.ewm.client.stats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+public class StatsHttpTransport {
+    private final CloseableHttpClient httpClient;
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+    private final CloseableHttpAsyncClient asyncClient;
+    private final ScheduledExecutorService asyncEvictor;
+    private final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    public StatsHttpTransport(@Value("${stats-server.http.max-connections}") int maxConnections,
+                              @Value("${stats-server.http.max-connections-per-route}") int maxConnectionsPerRoute,
+                              @Value("${stats-server.http.connect-timeout-ms}") int connectTimeoutMs,
+                              @Value("${stats-server.http.read-timeout-ms}") int readTimeoutMs,
+                              @Value("${stats-server.http.pool-timeout-ms}") int poolTimeoutMs,
+                              @Value("${stats-server.http.idle-timeout-ms}") long idleTimeoutMs,
+                              MeterRegistry meterRegistry) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolTimeoutMs)
+                .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "stats-server")
+                .bindTo(meterRegistry);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+                Long requestDeadline = deadline.get();
+                if (requestDeadline == null) {
+                    return null;
+                }
+                int remainingMs = (int) Math.max(1,
+                        TimeUnit.NANOSECONDS.toMillis(requestDeadline - System.nanoTime()));
+                HttpClientContext context = HttpClientContext.create();
+                context.setRequestConfig(RequestConfig.copy(requestConfig)
+                        .setConnectTimeout(Math.min(connectTimeoutMs, remainingMs))
+                        .setSocketTimeout(Math.min(readTimeoutMs, remainingMs))
+                        .setConnectionRequestTimeout(Math.min(poolTimeoutMs, remainingMs))
+                        .build());
+                return context;
+            }
+        };
+
+        PoolingNHttpClientConnectionManager asyncConnectionManager;
+        try {
+            asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                    IOReactorConfig.custom()
+                            .setConnectTimeout(connectTimeoutMs)
+                            .setSoTimeout(readTimeoutMs)
+                            .build()));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Не удалось создать асинхронный HTTP-клиент stats-server", e);
+        }
+        asyncConnectionManager.setMaxTotal(maxConnections);
+        asyncConnectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        new PoolingHttpClientConnectionManagerMetricsBinder(asyncConnectionManager, "stats-server-async")
+                .bindTo(meterRegistry);
+        this.asyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        this.asyncClient.start();
+        this.asyncEvictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-async-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictionIntervalMs = Math.max(1, idleTimeoutMs / 2);
+        this.asyncEvictor.scheduleWithFixedDelay(() -> {
+            asyncConnectionManager.closeExpiredConnections();
+            asyncConnectionManager.closeIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS);
+        }, evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    public <R> R withDeadline(long deadlineNanos, Supplier<R> call) {
+        deadline.set(deadlineNanos);
+        try {
+            return call.get();
+        } finally {
+            deadline.remove();
+        }
+    }
+
+    public CloseableHttpAsyncClient getAsyncClient() {
+        return asyncClient;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        asyncEvictor.shutdown();
+        asyncClient.close();
+        httpClient.close();
+    }
+}
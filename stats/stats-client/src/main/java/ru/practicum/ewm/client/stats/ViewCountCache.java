@@ -0,0 +1,141 @@
+package ru.practicum.ewm.client.stats;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+@Slf4j
+public class ViewCountCache {
+    private final long ttlMs;
+    private final Map<String, Entry> entries;
+
+    public ViewCountCache(long ttlMs, int maxSize) {
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Map<String, Long> getAll(Collection<String> uris, Function<List<String>, Map<String, Long>> loader,
+                                    Executor refreshExecutor) {
+        Lookup lookup = lookup(uris);
+        if (!lookup.stale.isEmpty()) {
+            refreshExecutor.execute(() -> {
+                try {
+                    refreshed(lookup.stale, loader.apply(lookup.stale), null, lookup.time);
+                } catch (RuntimeException e) {
+                    refreshed(lookup.stale, null, e, lookup.time);
+                }
+            });
+        }
+        if (!lookup.missing.isEmpty()) {
+            Map<String, Long> loaded = loader.apply(lookup.missing);
+            putAll(lookup.missing, loaded, lookup.time);
+            lookup.result.putAll(loaded);
+        }
+        return lookup.result;
+    }
+
+    public CompletableFuture<Map<String, Long>> getAllAsync(
+            Collection<String> uris, Function<List<String>, CompletableFuture<Map<String, Long>>> loader) {
+        Lookup lookup = lookup(uris);
+        if (!lookup.stale.isEmpty()) {
+            loader.apply(lookup.stale).whenComplete((loaded, error) ->
+                    refreshed(lookup.stale, loaded, error, lookup.time));
+        }
+        if (lookup.missing.isEmpty()) {
+            return CompletableFuture.completedFuture(lookup.result);
+        }
+        return loader.apply(lookup.missing).thenApply(loaded -> {
+            putAll(lookup.missing, loaded, lookup.time);
+            lookup.result.putAll(loaded);
+            return lookup.result;
+        });
+    }
+
+    public synchronized Long getIfFresh(String uri) {
+        Entry entry = entries.get(uri);
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt >= ttlMs) {
+            return null;
+        }
+        return entry.views;
+    }
+
+    public synchronized void put(String uri, Long views) {
+        entries.put(uri, new Entry(views, System.currentTimeMillis()));
+    }
+
+    private synchronized Lookup lookup(Collection<String> uris) {
+        Lookup lookup = new Lookup(System.currentTimeMillis());
+        for (String uri : uris) {
+            Entry entry = entries.get(uri);
+            if (entry == null) {
+                lookup.missing.add(uri);
+                continue;
+            }
+            if (entry.views != null) {
+                lookup.result.put(uri, entry.views);
+            }
+            if (lookup.time - entry.loadedAt >= ttlMs && !entry.refreshing) {
+                entry.refreshing = true;
+                lookup.stale.add(uri);
+            }
+        }
+        return lookup;
+    }
+
+    private void refreshed(List<String> uris, Map<String, Long> loaded, Throwable error, long loadedAt) {
+        if (error == null) {
+            putAll(uris, loaded, loadedAt);
+            return;
+        }
+        log.warn("Не удалось обновить кэш просмотров, адресов: {}: {}", uris.size(), error.getMessage());
+        synchronized (this) {
+            for (String uri : uris) {
+                Entry entry = entries.get(uri);
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
+            }
+        }
+    }
+
+    private synchronized void putAll(List<String> uris, Map<String, Long> loaded, long loadedAt) {
+        for (String uri : uris) {
+            entries.put(uri, new Entry(loaded.get(uri), loadedAt));
+        }
+    }
+
+    private static class Lookup {
+        private final long time;
+        private final Map<String, Long> result = new HashMap<>();
+        private final List<String> missing = new ArrayList<>();
+        private final List<String> stale = new ArrayList<>();
+
+        Lookup(long time) {
+            this.time = time;
+        }
+    }
+
+    private static class Entry {
+        private final Long views;
+        private final long loadedAt;
+        private boolean refreshing;
+
+        Entry(Long views, long loadedAt) {
+            this.views = views;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
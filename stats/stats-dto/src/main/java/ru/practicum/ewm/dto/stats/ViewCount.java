@@ -0,0 +1,17 @@
+package ru.practicum.ewm.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViewCount {
+    private String app;
+    private String uri;
+    private Long hits;
+    private Long uniqueHits;
+}
@@ -1,5 +1,6 @@
 package ru.practicum.ewm.dto.stats;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,10 @@ public class ViewStats {
     private String app;
     private String uri;
     private Long hits;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean approximate;
+
+    public ViewStats(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
 }
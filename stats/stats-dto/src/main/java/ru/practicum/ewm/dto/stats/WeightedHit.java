@@ -0,0 +1,31 @@
+package ru.practicum.ewm.dto.stats;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WeightedHit {
+    @NotBlank
+    private String ip;
+    @NotBlank
+    private String app;
+    @NotBlank
+    private String uri;
+    @NotNull
+    @Positive
+    private Integer count;
+    @NotNull
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime firstTimestamp;
+}
@@ -0,0 +1,15 @@
+package ru.practicum.ewm.stats.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import ru.practicum.ewm.dto.stats.BinaryWireFormat;
+
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(BinaryWireFormat.createMapper());
+    }
+}
@@ -1,20 +1,33 @@
 package ru.practicum.ewm.stats.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.ewm.dto.stats.BinaryWireFormat;
 import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.dto.stats.ViewCount;
 import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.dto.stats.WeightedHit;
 import ru.practicum.ewm.stats.errorhandling.IncorrectDateException;
 import ru.practicum.ewm.stats.service.StatService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping
@@ -24,6 +37,7 @@ import java.util.List;
 public class StatsController {
 
     private final StatService statService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/stats")
     public List<ViewStats> getStatsView(@NotNull @RequestParam(name = "start")
@@ -31,18 +45,93 @@ public class StatsController {
                                         @NotNull @RequestParam(name = "end")
                                         @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                         @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
-                                        @RequestParam(name = "uris", required = false) List<String> uris) {
+                                        @RequestParam(name = "uris", required = false) List<String> uris,
+                                        @RequestParam(name = "approximate", defaultValue = "false")
+                                        Boolean approximate) {
         if (end.isBefore(start)) {
             throw new IncorrectDateException("Переданы некорректные даты");
         }
         log.info("Вызван эндпоинт по получению статистики в stats-server");
-        return statService.getStatsView(start, end, unique, uris);
+        return statService.getStatsView(start, end, unique, uris, approximate);
+    }
+
+    @GetMapping("/stats/top")
+    public List<ViewStats> getTopStats(@NotNull @RequestParam(name = "start")
+                                       @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                       @NotNull @RequestParam(name = "end")
+                                       @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                       @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+                                       @RequestParam(name = "prefix", required = false) String prefix,
+                                       @Positive @RequestParam(name = "limit", defaultValue = "10") Integer limit) {
+        if (end.isBefore(start)) {
+            throw new IncorrectDateException("Переданы некорректные даты");
+        }
+        log.info("Вызван эндпоинт получения самых просматриваемых адресов в stats-server");
+        return statService.getTopStats(start, end, unique, prefix, limit);
+    }
+
+    @GetMapping("/stats/recent")
+    public List<ViewStats> getRecentStats(@Positive @RequestParam(name = "minutes", defaultValue = "5") Integer minutes,
+                                          @RequestParam(name = "uris", required = false) List<String> uris) {
+        log.info("Вызван эндпоинт получения недавних просмотров в stats-server");
+        return statService.getRecentStats(minutes, uris);
+    }
+
+    @GetMapping("/stats/stream")
+    public ResponseEntity<StreamingResponseBody> streamStatsView(@NotNull @RequestParam(name = "start")
+                                                                 @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                                 LocalDateTime start,
+                                                                 @NotNull @RequestParam(name = "end")
+                                                                 @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                                 LocalDateTime end,
+                                                                 @RequestParam(name = "unique", defaultValue = "false")
+                                                                 Boolean unique,
+                                                                 @RequestParam(name = "uris", required = false)
+                                                                 List<String> uris) {
+        if (end.isBefore(start)) {
+            throw new IncorrectDateException("Переданы некорректные даты");
+        }
+        log.info("Вызван эндпоинт потоковой выгрузки статистики в stats-server");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                statService.streamStatsView(start, end, unique, uris, viewStats -> {
+                    try {
+                        generator.writeObject(viewStats);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
-    @PostMapping("/hit")
-    public void createHit(@RequestBody @Valid EndpointHit endpointHit) {
+    @PostMapping(value = "/hit", consumes = {MediaType.APPLICATION_JSON_VALUE, BinaryWireFormat.MEDIA_TYPE})
+    public CompletableFuture<ViewCount> createHit(@RequestBody @Valid EndpointHit endpointHit,
+                                                  @RequestParam(name = "returnCounts", defaultValue = "false") Boolean returnCounts) {
         log.info("Вызван эндпоинт записи статистики в stats-server");
-        statService.create(endpointHit);
+        if (returnCounts) {
+            return statService.createAndCount(endpointHit);
+        }
+        return statService.create(endpointHit).thenApply(written -> null);
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping(value = "/hits", consumes = {MediaType.APPLICATION_JSON_VALUE, BinaryWireFormat.MEDIA_TYPE})
+    public CompletableFuture<Void> createHits(@RequestBody @NotEmpty List<@Valid EndpointHit> endpointHits) {
+        log.info("Вызван эндпоинт пакетной записи статистики в stats-server, записей: {}", endpointHits.size());
+        return statService.createAll(endpointHits);
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping(value = "/hits/weighted", consumes = {MediaType.APPLICATION_JSON_VALUE, BinaryWireFormat.MEDIA_TYPE})
+    public CompletableFuture<Void> createWeightedHits(@RequestBody @NotEmpty List<@Valid WeightedHit> weightedHits) {
+        log.info("Вызван эндпоинт записи агрегированной статистики в stats-server, записей: {}", weightedHits.size());
+        return statService.createAllWeighted(weightedHits);
     }
 }
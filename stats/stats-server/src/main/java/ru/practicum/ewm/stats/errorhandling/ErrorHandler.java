@@ -6,6 +6,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.validation.ConstraintViolationException;
+
 @RestControllerAdvice
 @Slf4j
 public class ErrorHandler {
@@ -18,4 +20,40 @@ public class ErrorHandler {
                 e.getMessage()
         );
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse incorrectIpHandler(final IncorrectIpException e) {
+        log.error(e.getMessage() + ". Ошибка: " + e.getClass().getName());
+        return new ErrorResponse(
+                e.getMessage()
+        );
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse constraintViolationHandler(final ConstraintViolationException e) {
+        log.error(e.getMessage() + ". Ошибка: " + e.getClass().getName());
+        return new ErrorResponse(
+                e.getMessage()
+        );
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse ingestionOverloadHandler(final IngestionOverloadException e) {
+        log.warn(e.getMessage() + ". Ошибка: " + e.getClass().getName());
+        return new ErrorResponse(
+                e.getMessage()
+        );
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse featureDisabledHandler(final FeatureDisabledException e) {
+        log.warn(e.getMessage() + ". Ошибка: " + e.getClass().getName());
+        return new ErrorResponse(
+                e.getMessage()
+        );
+    }
 }
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.stats.errorhandling;
+
+public class FeatureDisabledException extends RuntimeException {
+    public FeatureDisabledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.stats.errorhandling;
+
+public class IncorrectIpException extends RuntimeException {
+    public IncorrectIpException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.stats.errorhandling;
+
+public class IngestionOverloadException extends RuntimeException {
+    public IngestionOverloadException(String message) {
+        super(message);
+    }
+}
@@ -2,8 +2,11 @@ package ru.practicum.ewm.stats.mapper;
 
 import lombok.experimental.UtilityClass;
 import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.dto.stats.WeightedHit;
 import ru.practicum.ewm.stats.model.Hit;
 
+import java.time.temporal.ChronoUnit;
+
 @UtilityClass
 public class HitMapper {
     public EndpointHit toEndpointHit(Hit hit) {
@@ -18,11 +21,24 @@ public class HitMapper {
     }
 
     public Hit toHit(EndpointHit endpointHit) {
+        IpAddressMapper.validate(endpointHit.getIp());
         return Hit.builder()
                 .app(endpointHit.getApp())
                 .ip(endpointHit.getIp())
                 .uri(endpointHit.getUri())
                 .created(endpointHit.getTimestamp())
+                .weight(1)
+                .build();
+    }
+
+    public Hit toHit(WeightedHit weightedHit) {
+        IpAddressMapper.validate(weightedHit.getIp());
+        return Hit.builder()
+                .app(weightedHit.getApp())
+                .ip(weightedHit.getIp())
+                .uri(weightedHit.getUri())
+                .created(weightedHit.getFirstTimestamp().truncatedTo(ChronoUnit.SECONDS))
+                .weight(weightedHit.getCount())
                 .build();
     }
 }
@@ -0,0 +1,126 @@
+package ru.practicum.ewm.stats.mapper;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.ewm.stats.errorhandling.IncorrectIpException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@UtilityClass
+public class IpAddressMapper {
+    private static final int IPV6_WORDS = 8;
+
+    public void validate(String ip) {
+        toBytes(ip);
+    }
+
+    public byte[] toBytes(String ip) {
+        byte[] address = ip.indexOf(':') >= 0 ? parseIpv6(ip) : parseIpv4(ip);
+        if (address == null) {
+            throw new IncorrectIpException(String.format("Некорректный IP-адрес: \"%s\"", ip));
+        }
+        return address;
+    }
+
+    private byte[] parseIpv4(String ip) {
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] address = new byte[4];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3 || part.length() > 1 && part.charAt(0) == '0') {
+                return null;
+            }
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                char c = part.charAt(j);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (value > 255) {
+                return null;
+            }
+            address[i] = (byte) value;
+        }
+        return address;
+    }
+
+    private byte[] parseIpv6(String ip) {
+        int gap = ip.indexOf("::");
+        if (gap >= 0 && ip.indexOf("::", gap + 1) >= 0) {
+            return null;
+        }
+        List<Integer> head = parseWords(gap >= 0 ? ip.substring(0, gap) : ip, gap < 0);
+        List<Integer> tail = gap >= 0 ? parseWords(ip.substring(gap + 2), true) : List.of();
+        if (head == null || tail == null) {
+            return null;
+        }
+        int missing = IPV6_WORDS - head.size() - tail.size();
+        if (gap < 0 ? missing != 0 : missing < 1) {
+            return null;
+        }
+        List<Integer> words = new ArrayList<>(head);
+        if (gap >= 0) {
+            words.addAll(Collections.nCopies(missing, 0));
+        }
+        words.addAll(tail);
+        byte[] address = new byte[IPV6_WORDS * 2];
+        for (int i = 0; i < IPV6_WORDS; i++) {
+            address[i * 2] = (byte) (words.get(i) >> 8);
+            address[i * 2 + 1] = (byte) (words.get(i) & 0xff);
+        }
+        if (isIpv4Mapped(address)) {
+            return Arrays.copyOfRange(address, 12, 16);
+        }
+        return address;
+    }
+
+    private List<Integer> parseWords(String part, boolean ipv4Allowed) {
+        List<Integer> words = new ArrayList<>();
+        if (part.isEmpty()) {
+            return words;
+        }
+        String[] groups = part.split(":", -1);
+        for (int i = 0; i < groups.length; i++) {
+            String group = groups[i];
+            if (group.indexOf('.') >= 0) {
+                byte[] ipv4 = i == groups.length - 1 && ipv4Allowed ? parseIpv4(group) : null;
+                if (ipv4 == null) {
+                    return null;
+                }
+                words.add((ipv4[0] & 0xff) << 8 | ipv4[1] & 0xff);
+                words.add((ipv4[2] & 0xff) << 8 | ipv4[3] & 0xff);
+                continue;
+            }
+            if (group.isEmpty() || group.length() > 4) {
+                return null;
+            }
+            int value = 0;
+            for (int j = 0; j < group.length(); j++) {
+                char c = group.charAt(j);
+                int digit = c < 128 ? Character.digit(c, 16) : -1;
+                if (digit < 0) {
+                    return null;
+                }
+                value = value << 4 | digit;
+            }
+            words.add(value);
+        }
+        return words;
+    }
+
+    private boolean isIpv4Mapped(byte[] address) {
+        for (int i = 0; i < 10; i++) {
+            if (address[i] != 0) {
+                return false;
+            }
+        }
+        return address[10] == (byte) 0xff && address[11] == (byte) 0xff;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.ewm.stats.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "stats_uri")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Endpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    @Column
+    private String uri;
+}
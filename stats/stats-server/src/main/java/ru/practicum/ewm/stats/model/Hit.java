@@ -18,13 +18,19 @@ public class Hit {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    @Column(name = "application")
-    private String app;
-    @Column
-    private String uri;
-    @Column
+    @Column(name = "app_id")
+    private Integer appId;
+    @Column(name = "uri_id")
+    private Integer uriId;
+    @Column(columnDefinition = "inet")
     private String ip;
     @Column
     private LocalDateTime created;
+    @Column
+    private Integer weight;
+    @Transient
+    private String app;
+    @Transient
+    private String uri;
 
 }
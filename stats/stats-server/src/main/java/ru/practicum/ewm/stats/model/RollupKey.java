@@ -0,0 +1,13 @@
+package ru.practicum.ewm.stats.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class RollupKey {
+    Granularity granularity;
+    LocalDateTime bucket;
+    Integer appId;
+    Integer uriId;
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.stats.model;
+
+import lombok.Value;
+
+@Value
+public class StatKey {
+    String app;
+    String uri;
+}
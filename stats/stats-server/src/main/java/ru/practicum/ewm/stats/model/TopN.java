@@ -0,0 +1,37 @@
+package ru.practicum.ewm.stats.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+public class TopN<T> {
+    private final int limit;
+    private final ToLongFunction<T> weight;
+    private final PriorityQueue<T> heap;
+
+    public TopN(int limit, ToLongFunction<T> weight) {
+        this.limit = limit;
+        this.weight = weight;
+        this.heap = new PriorityQueue<>(Comparator.comparingLong(weight));
+    }
+
+    public void offer(T item) {
+        if (limit <= 0) {
+            return;
+        }
+        if (heap.size() < limit) {
+            heap.add(item);
+        } else if (weight.applyAsLong(item) > weight.applyAsLong(heap.peek())) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    public List<T> toList() {
+        List<T> items = new ArrayList<>(heap);
+        items.sort(Comparator.comparingLong(weight).reversed());
+        return items;
+    }
+}
@@ -0,0 +1,225 @@
+package ru.practicum.ewm.stats.repository;
+
+import ru.practicum.ewm.stats.mapper.IpAddressMapper;
+import ru.practicum.ewm.stats.model.Hit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+public class ActiveSegment implements AutoCloseable {
+    public static final int RECORD_SIZE = 36;
+    private static final int MAGIC = 0x45574D4C;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path path;
+    private final FileChannel log;
+    private long[] times;
+    private int[] appIds;
+    private int[] uriIds;
+    private int[] weights;
+    private long[] ipHighs;
+    private long[] ipLows;
+    private int size;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+
+    private ActiveSegment(Path path, FileChannel log, int capacity) {
+        this.path = path;
+        this.log = log;
+        this.times = new long[capacity];
+        this.appIds = new int[capacity];
+        this.uriIds = new int[capacity];
+        this.weights = new int[capacity];
+        this.ipHighs = new long[capacity];
+        this.ipLows = new long[capacity];
+    }
+
+    public static ActiveSegment open(Path path, int capacity) throws IOException {
+        FileChannel log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ActiveSegment segment = new ActiveSegment(path, log, capacity);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (log.size() < HEADER_SIZE) {
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            log.truncate(0);
+            log.write(header, 0);
+            log.force(false);
+        } else {
+            log.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                log.close();
+                throw new IllegalStateException("Некорректный формат журнала сегмента статистики: " + path);
+            }
+        }
+        long records = (log.size() - HEADER_SIZE) / RECORD_SIZE;
+        log.truncate(HEADER_SIZE + records * RECORD_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        for (long i = 0; i < records; i++) {
+            buffer.clear();
+            log.read(buffer, HEADER_SIZE + i * RECORD_SIZE);
+            buffer.flip();
+            segment.add(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong(),
+                    buffer.getLong());
+        }
+        log.position(HEADER_SIZE + records * RECORD_SIZE);
+        return segment;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void append(List<Hit> hits) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(hits.size() * RECORD_SIZE);
+        for (Hit hit : hits) {
+            long time = SegmentColumns.toMicros(hit.getCreated());
+            byte[] ip = toIpv6(IpAddressMapper.toBytes(hit.getIp()));
+            ByteBuffer ipBuffer = ByteBuffer.wrap(ip);
+            long ipHigh = ipBuffer.getLong();
+            long ipLow = ipBuffer.getLong();
+            buffer.putLong(time).putInt(hit.getAppId()).putInt(hit.getUriId()).putInt(hit.getWeight())
+                    .putLong(ipHigh).putLong(ipLow);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        log.force(false);
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            add(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong(),
+                    buffer.getLong());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SegmentColumns snapshot() {
+        return new Snapshot(times, appIds, uriIds, weights, ipHighs, ipLows, size, minTime, maxTime);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void add(long time, int appId, int uriId, int weight, long ipHigh, long ipLow) {
+        if (size == times.length) {
+            int capacity = Math.max(16, size * 2);
+            times = Arrays.copyOf(times, capacity);
+            appIds = Arrays.copyOf(appIds, capacity);
+            uriIds = Arrays.copyOf(uriIds, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            ipHighs = Arrays.copyOf(ipHighs, capacity);
+            ipLows = Arrays.copyOf(ipLows, capacity);
+        }
+        times[size] = time;
+        appIds[size] = appId;
+        uriIds[size] = uriId;
+        weights[size] = weight;
+        ipHighs[size] = ipHigh;
+        ipLows[size] = ipLow;
+        size++;
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+    }
+
+    private byte[] toIpv6(byte[] ip) {
+        if (ip.length == 16) {
+            return ip;
+        }
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(ip, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    private static class Snapshot implements SegmentColumns {
+        private final long[] times;
+        private final int[] appIds;
+        private final int[] uriIds;
+        private final int[] weights;
+        private final long[] ipHighs;
+        private final long[] ipLows;
+        private final int size;
+        private final long minTime;
+        private final long maxTime;
+
+        Snapshot(long[] times, int[] appIds, int[] uriIds, int[] weights, long[] ipHighs, long[] ipLows, int size,
+                 long minTime, long maxTime) {
+            this.times = times;
+            this.appIds = appIds;
+            this.uriIds = uriIds;
+            this.weights = weights;
+            this.ipHighs = ipHighs;
+            this.ipLows = ipLows;
+            this.size = size;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long minTime() {
+            return minTime;
+        }
+
+        @Override
+        public long maxTime() {
+            return maxTime;
+        }
+
+        @Override
+        public long time(int row) {
+            return times[row];
+        }
+
+        @Override
+        public int appId(int row) {
+            return appIds[row];
+        }
+
+        @Override
+        public int uriId(int row) {
+            return uriIds[row];
+        }
+
+        @Override
+        public int weight(int row) {
+            return weights[row];
+        }
+
+        @Override
+        public long ipHigh(int row) {
+            return ipHighs[row];
+        }
+
+        @Override
+        public long ipLow(int row) {
+            return ipLows[row];
+        }
+
+        @Override
+        public boolean isSorted() {
+            return false;
+        }
+
+        @Override
+        public int lowerBound(long time) {
+            return 0;
+        }
+    }
+}
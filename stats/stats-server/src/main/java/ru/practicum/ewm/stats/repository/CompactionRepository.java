@@ -0,0 +1,29 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class CompactionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<LocalDateTime> findWatermark() {
+        return jdbcTemplate.query("SELECT compacted_before FROM stats_compaction WHERE id = 1",
+                        (rs, rowNum) -> rs.getTimestamp("compacted_before").toLocalDateTime())
+                .stream()
+                .findFirst();
+    }
+
+    public void advanceWatermark(LocalDateTime compactedBefore) {
+        jdbcTemplate.update("INSERT INTO stats_compaction (id, compacted_before) VALUES (1, ?) " +
+                "ON CONFLICT (id) DO UPDATE " +
+                "SET compacted_before = GREATEST(stats_compaction.compacted_before, EXCLUDED.compacted_before)",
+                Timestamp.valueOf(compactedBefore));
+    }
+}
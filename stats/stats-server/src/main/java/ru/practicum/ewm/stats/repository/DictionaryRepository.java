@@ -0,0 +1,53 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class DictionaryRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Integer findOrCreateApp(String name) {
+        jdbcTemplate.update("INSERT INTO stats_app (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+        return jdbcTemplate.queryForObject("SELECT id FROM stats_app WHERE name = ?", Integer.class, name);
+    }
+
+    public Integer findOrCreateUri(String uri) {
+        jdbcTemplate.update("INSERT INTO stats_uri (uri) VALUES (?) ON CONFLICT (uri) DO NOTHING", uri);
+        return jdbcTemplate.queryForObject("SELECT id FROM stats_uri WHERE uri = ?", Integer.class, uri);
+    }
+
+    public List<Integer> findUriIds(Collection<String> uris) {
+        return namedParameterJdbcTemplate.queryForList("SELECT id FROM stats_uri WHERE uri IN (:uris)",
+                new MapSqlParameterSource("uris", uris), Integer.class);
+    }
+
+    public Map<Integer, String> findAppNames(Collection<Integer> ids) {
+        return findNames("SELECT id, name AS value FROM stats_app WHERE id IN (:ids)", ids);
+    }
+
+    public Map<Integer, String> findUris(Collection<Integer> ids) {
+        return findNames("SELECT id, uri AS value FROM stats_uri WHERE id IN (:ids)", ids);
+    }
+
+    private Map<Integer, String> findNames(String sql, Collection<Integer> ids) {
+        Map<Integer, String> names = new HashMap<>();
+        if (!ids.isEmpty()) {
+            namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids),
+                    rs -> {
+                        names.put(rs.getInt("id"), rs.getString("value"));
+                    });
+        }
+        return names;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.ewm.stats.repository;
+
+import ru.practicum.ewm.stats.model.Hit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HitBatchRepository {
+    void saveAllInBatch(List<Hit> hits);
+
+    int deleteChunkBefore(LocalDateTime cutoff, int limit);
+}
@@ -0,0 +1,41 @@
+package ru.practicum.ewm.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.stats.model.Hit;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class HitBatchRepositoryImpl implements HitBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public HitBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                  @Value("${stats.ingestion.jdbc-batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void saveAllInBatch(List<Hit> hits) {
+        jdbcTemplate.batchUpdate("INSERT INTO stats (created, app_id, uri_id, ip, weight) " +
+                        "VALUES (?, ?, ?, CAST(? AS inet), ?)",
+                hits, batchSize, (ps, hit) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(hit.getCreated()));
+                    ps.setInt(2, hit.getAppId());
+                    ps.setInt(3, hit.getUriId());
+                    ps.setString(4, hit.getIp());
+                    ps.setInt(5, hit.getWeight());
+                });
+    }
+
+    @Override
+    public int deleteChunkBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM stats WHERE (id, created) IN " +
+                "(SELECT id, created FROM stats WHERE created < ? LIMIT ?)", Timestamp.valueOf(cutoff), limit);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.ewm.stats.repository;
+
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.StatKey;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public interface HitStore {
+    void append(List<Hit> hits);
+
+    List<ViewStats> countHits(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    List<ViewStats> countUniqueHits(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    List<ViewStats> findTopUniqueHits(LocalDateTime start, LocalDateTime end, String uriPrefix, int limit);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, boolean unique, List<String> uris,
+                     Consumer<ViewStats> consumer);
+
+    int deleteBefore(LocalDateTime cutoff, int limit);
+
+    void findDistinctIps(LocalDateTime from, LocalDateTime to, List<String> uris,
+                         BiConsumer<StatKey, byte[]> consumer);
+
+    boolean isSqlBacked();
+}
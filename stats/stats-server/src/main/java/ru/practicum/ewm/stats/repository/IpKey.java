@@ -0,0 +1,18 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+
+@Value
+class IpKey {
+    long high;
+    long low;
+
+    byte[] toBytes() {
+        if (high == 0 && (low >>> 32) == 0xFFFF) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt((int) low).array();
+        }
+        return ByteBuffer.allocate(2 * Long.BYTES).putLong(high).putLong(low).array();
+    }
+}
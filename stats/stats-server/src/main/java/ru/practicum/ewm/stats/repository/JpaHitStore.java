@@ -0,0 +1,78 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.mapper.IpAddressMapper;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.StatKey;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage", havingValue = "jpa", matchIfMissing = true)
+public class JpaHitStore implements HitStore {
+    private final StatRepository statRepository;
+    private final StatStreamRepository statStreamRepository;
+    private final SketchRepository sketchRepository;
+
+    @Override
+    public void append(List<Hit> hits) {
+        statRepository.saveAllInBatch(hits);
+    }
+
+    @Override
+    public List<ViewStats> countHits(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return uris == null ? statRepository.countInRangeWithoutUris(from, to)
+                : statRepository.countInRangeWithUris(from, to, uris);
+    }
+
+    @Override
+    public List<ViewStats> countUniqueHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return uris == null ? statRepository.findUniqueStatsWithoutUris(start, end)
+                : statRepository.findUniqueStatsWithUris(start, end, uris);
+    }
+
+    @Override
+    public List<ViewStats> findTopUniqueHits(LocalDateTime start, LocalDateTime end, String uriPrefix, int limit) {
+        return statRepository.findTopUniqueStats(start, end, toLikePattern(uriPrefix), PageRequest.of(0, limit));
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, boolean unique, List<String> uris,
+                            Consumer<ViewStats> consumer) {
+        statStreamRepository.streamStats(start, end, unique, uris, consumer);
+    }
+
+    @Override
+    public int deleteBefore(LocalDateTime cutoff, int limit) {
+        return statRepository.deleteChunkBefore(cutoff, limit);
+    }
+
+    @Override
+    public void findDistinctIps(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                BiConsumer<StatKey, byte[]> consumer) {
+        sketchRepository.findDistinctIps(from, to, uris, rs -> consumer.accept(
+                new StatKey(rs.getString("name"), rs.getString("uri")), IpAddressMapper.toBytes(rs.getString("ip"))));
+    }
+
+    @Override
+    public boolean isSqlBacked() {
+        return true;
+    }
+
+    private String toLikePattern(String uriPrefix) {
+        if (uriPrefix == null) {
+            return "%";
+        }
+        return uriPrefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+}
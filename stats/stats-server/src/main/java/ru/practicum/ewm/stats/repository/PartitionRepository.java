@@ -0,0 +1,40 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+    private static final String PARENT_TABLE = "stats";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean isPartitioned() {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM pg_partitioned_table AS p " +
+                "JOIN pg_class AS c ON c.oid = p.partrelid " +
+                "WHERE c.relname = ? AND pg_table_is_visible(c.oid)", PARENT_TABLE).isEmpty();
+    }
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList("SELECT child.relname " +
+                "FROM pg_inherits AS i " +
+                "JOIN pg_class AS parent ON parent.oid = i.inhparent " +
+                "JOIN pg_class AS child ON child.oid = i.inhrelid " +
+                "WHERE parent.relname = ? AND pg_table_is_visible(parent.oid)", String.class, PARENT_TABLE);
+    }
+
+    public void createMonthPartition(String name, YearMonth month) {
+        jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s " +
+                        "FOR VALUES FROM ('%s') TO ('%s')", name, PARENT_TABLE, month.atDay(1),
+                month.plusMonths(1).atDay(1)));
+    }
+
+    public void dropPartition(String name) {
+        jdbcTemplate.execute(String.format("DROP TABLE IF EXISTS %s", name));
+    }
+}
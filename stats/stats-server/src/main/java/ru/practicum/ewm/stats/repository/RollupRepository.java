@@ -0,0 +1,127 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.model.RollupKey;
+import ru.practicum.ewm.stats.model.TimeRange;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+    private static final Comparator<RollupKey> LOCK_ORDER = Comparator.comparing(RollupKey::getGranularity)
+            .thenComparing(RollupKey::getUriId)
+            .thenComparing(RollupKey::getBucket)
+            .thenComparing(RollupKey::getAppId);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void addAll(Map<RollupKey, Long> rollups) {
+        List<Map.Entry<RollupKey, Long>> entries = new ArrayList<>(rollups.entrySet());
+        entries.sort(Map.Entry.comparingByKey(LOCK_ORDER));
+        jdbcTemplate.getJdbcTemplate().batchUpdate("INSERT INTO stats_rollup " +
+                        "(granularity, bucket, app_id, uri_id, hits) VALUES (?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (granularity, uri_id, bucket, app_id) " +
+                        "DO UPDATE SET hits = stats_rollup.hits + EXCLUDED.hits",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setString(1, entry.getKey().getGranularity().name());
+                    ps.setTimestamp(2, Timestamp.valueOf(entry.getKey().getBucket()));
+                    ps.setInt(3, entry.getKey().getAppId());
+                    ps.setInt(4, entry.getKey().getUriId());
+                    ps.setLong(5, entry.getValue());
+                });
+    }
+
+    public List<ViewStats> sumHits(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                   List<String> uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("granularity", granularity.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            uriFilter = "AND uri_id IN (SELECT id FROM stats_uri WHERE uri IN (:uris)) ";
+            parameters.addValue("uris", uris);
+        }
+        return jdbcTemplate.query("SELECT a.name, u.uri, r.hits " +
+                        "FROM (SELECT app_id, uri_id, SUM(hits) AS hits " +
+                        "FROM stats_rollup " +
+                        "WHERE granularity = :granularity AND bucket >= :from AND bucket < :to " + uriFilter +
+                        "GROUP BY app_id, uri_id) AS r " +
+                        "JOIN stats_app AS a ON a.id = r.app_id " +
+                        "JOIN stats_uri AS u ON u.id = r.uri_id",
+                parameters, (rs, rowNum) -> new ViewStats(rs.getString("name"), rs.getString("uri"),
+                        rs.getLong("hits")));
+    }
+
+    public List<ViewStats> sumAllHits(Granularity granularity) {
+        return jdbcTemplate.query("SELECT a.name, u.uri, r.hits " +
+                        "FROM (SELECT app_id, uri_id, SUM(hits) AS hits " +
+                        "FROM stats_rollup " +
+                        "WHERE granularity = :granularity " +
+                        "GROUP BY app_id, uri_id) AS r " +
+                        "JOIN stats_app AS a ON a.id = r.app_id " +
+                        "JOIN stats_uri AS u ON u.id = r.uri_id",
+                new MapSqlParameterSource("granularity", granularity.name()),
+                (rs, rowNum) -> new ViewStats(rs.getString("name"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    public List<ViewStats> findTopHits(List<TimeRange> ranges, String uriPattern, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("uriPattern", uriPattern)
+                .addValue("limit", limit);
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            TimeRange range = ranges.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(range.getFrom()));
+            parameters.addValue("to" + i, Timestamp.valueOf(range.getTo()));
+            if (range.isRaw()) {
+                parts.add("SELECT app_id, uri_id, weight AS hits FROM stats " +
+                        "WHERE created >= :from" + i + " AND created < :to" + i);
+            } else {
+                parameters.addValue("granularity" + i, range.getGranularity().name());
+                parts.add("SELECT app_id, uri_id, hits FROM stats_rollup " +
+                        "WHERE granularity = :granularity" + i + " AND bucket >= :from" + i + " AND bucket < :to" + i);
+            }
+        }
+        if (parts.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT a.name, u.uri, r.hits " +
+                        "FROM (SELECT app_id, uri_id, SUM(hits) AS hits " +
+                        "FROM (" + String.join(" UNION ALL ", parts) + ") AS p " +
+                        "WHERE uri_id IN (SELECT id FROM stats_uri WHERE uri LIKE :uriPattern) " +
+                        "GROUP BY app_id, uri_id " +
+                        "ORDER BY hits DESC " +
+                        "LIMIT :limit) AS r " +
+                        "JOIN stats_app AS a ON a.id = r.app_id " +
+                        "JOIN stats_uri AS u ON u.id = r.uri_id " +
+                        "ORDER BY r.hits DESC",
+                parameters, (rs, rowNum) -> new ViewStats(rs.getString("name"), rs.getString("uri"),
+                        rs.getLong("hits")));
+    }
+
+    public Optional<TimeRange> findCoveredRange(Granularity granularity) {
+        return jdbcTemplate.query("SELECT MIN(bucket) AS first_bucket, MAX(bucket) AS last_bucket " +
+                        "FROM stats_rollup " +
+                        "WHERE granularity = :granularity",
+                new MapSqlParameterSource("granularity", granularity.name()), rs -> {
+                    rs.next();
+                    Timestamp first = rs.getTimestamp("first_bucket");
+                    Timestamp last = rs.getTimestamp("last_bucket");
+                    return first == null ? Optional.empty() : Optional.of(new TimeRange(granularity,
+                            first.toLocalDateTime(), granularity.next(last.toLocalDateTime())));
+                });
+    }
+}
@@ -0,0 +1,162 @@
+package ru.practicum.ewm.stats.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class SealedSegment implements SegmentColumns {
+    private static final int MAGIC = 0x45574D53;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final long minTime;
+    private final long maxTime;
+    private final int appOffset;
+    private final int uriOffset;
+    private final int weightOffset;
+    private final int ipHighOffset;
+    private final int ipLowOffset;
+
+    private SealedSegment(Path path, MappedByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Некорректный формат сегмента статистики: " + path);
+        }
+        this.path = path;
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.minTime = buffer.getLong(12);
+        this.maxTime = buffer.getLong(20);
+        this.appOffset = HEADER_SIZE + size * Long.BYTES;
+        this.uriOffset = appOffset + size * Integer.BYTES;
+        this.weightOffset = uriOffset + size * Integer.BYTES;
+        this.ipHighOffset = weightOffset + size * Integer.BYTES;
+        this.ipLowOffset = ipHighOffset + size * Long.BYTES;
+    }
+
+    public static SealedSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new SealedSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static SealedSegment write(Path path, SegmentColumns active) throws IOException {
+        int size = active.size();
+        Integer[] rows = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        Arrays.sort(rows, Comparator.comparingLong(active::time));
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size * ActiveSegment.RECORD_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size)
+                .putLong(active.minTime()).putLong(active.maxTime());
+        buffer.position(HEADER_SIZE);
+        for (Integer row : rows) {
+            buffer.putLong(active.time(row));
+        }
+        for (Integer row : rows) {
+            buffer.putInt(active.appId(row));
+        }
+        for (Integer row : rows) {
+            buffer.putInt(active.uriId(row));
+        }
+        for (Integer row : rows) {
+            buffer.putInt(active.weight(row));
+        }
+        for (Integer row : rows) {
+            buffer.putLong(active.ipHigh(row));
+        }
+        for (Integer row : rows) {
+            buffer.putLong(active.ipLow(row));
+        }
+        buffer.flip();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long minTime() {
+        return minTime;
+    }
+
+    @Override
+    public long maxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public long time(int row) {
+        return buffer.getLong(HEADER_SIZE + row * Long.BYTES);
+    }
+
+    @Override
+    public int appId(int row) {
+        return buffer.getInt(appOffset + row * Integer.BYTES);
+    }
+
+    @Override
+    public int uriId(int row) {
+        return buffer.getInt(uriOffset + row * Integer.BYTES);
+    }
+
+    @Override
+    public int weight(int row) {
+        return buffer.getInt(weightOffset + row * Integer.BYTES);
+    }
+
+    @Override
+    public long ipHigh(int row) {
+        return buffer.getLong(ipHighOffset + row * Long.BYTES);
+    }
+
+    @Override
+    public long ipLow(int row) {
+        return buffer.getLong(ipLowOffset + row * Long.BYTES);
+    }
+
+    @Override
+    public boolean isSorted() {
+        return true;
+    }
+
+    @Override
+    public int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (time(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
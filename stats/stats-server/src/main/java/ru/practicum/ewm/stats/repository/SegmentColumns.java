@@ -0,0 +1,32 @@
+package ru.practicum.ewm.stats.repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public interface SegmentColumns {
+    int size();
+
+    long minTime();
+
+    long maxTime();
+
+    long time(int row);
+
+    int appId(int row);
+
+    int uriId(int row);
+
+    int weight(int row);
+
+    long ipHigh(int row);
+
+    long ipLow(int row);
+
+    boolean isSorted();
+
+    int lowerBound(long time);
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,293 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.StatKey;
+import ru.practicum.ewm.stats.model.TopN;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Repository
+@Slf4j
+@ConditionalOnProperty(name = "stats.storage", havingValue = "segment")
+public class SegmentHitStore implements HitStore {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.seg");
+    private static final Pattern ACTIVE_NAME = Pattern.compile("active-(\\d+)\\.log");
+
+    private final DictionaryRepository dictionaryRepository;
+    private final Path directory;
+    private final int segmentRows;
+    private final List<SealedSegment> sealed = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ActiveSegment active;
+    private long sequence;
+
+    public SegmentHitStore(DictionaryRepository dictionaryRepository,
+                           @Value("${stats.segment.dir}") String directory,
+                           @Value("${stats.segment.rows}") int segmentRows) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.directory = Paths.get(directory);
+        this.segmentRows = segmentRows;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        Map<Long, Path> segments = new HashMap<>();
+        Map<Long, Path> logs = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher segment = SEGMENT_NAME.matcher(file.getFileName().toString());
+                Matcher log = ACTIVE_NAME.matcher(file.getFileName().toString());
+                if (segment.matches()) {
+                    segments.put(Long.parseLong(segment.group(1)), file);
+                } else if (log.matches()) {
+                    logs.put(Long.parseLong(log.group(1)), file);
+                }
+            });
+        }
+        for (Long number : segments.keySet().stream().sorted().collect(Collectors.toList())) {
+            sealed.add(SealedSegment.open(segments.get(number)));
+            sequence = Math.max(sequence, number + 1);
+        }
+        for (Map.Entry<Long, Path> log : logs.entrySet()) {
+            if (log.getKey() < sequence) {
+                Files.delete(log.getValue());
+            } else {
+                sequence = log.getKey();
+            }
+        }
+        active = ActiveSegment.open(directory.resolve("active-" + sequence + ".log"), segmentRows);
+        log.info("Хранилище сегментов открыто: {}, сегментов: {}, несброшенных записей: {}", directory,
+                sealed.size(), active.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        active.close();
+    }
+
+    @Override
+    public void append(List<Hit> hits) {
+        lock.writeLock().lock();
+        try {
+            active.append(hits);
+            if (active.size() >= segmentRows) {
+                seal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ViewStats> countHits(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        Map<Long, long[]> counts = new HashMap<>();
+        scan(SegmentColumns.toMicros(from), SegmentColumns.toMicros(to), uris, (columns, row) ->
+                counts.computeIfAbsent(key(columns.appId(row), columns.uriId(row)), key -> new long[1])[0] +=
+                        columns.weight(row));
+        Map<Long, Long> hits = new HashMap<>();
+        counts.forEach((key, count) -> hits.put(key, count[0]));
+        return toViewStats(hits);
+    }
+
+    @Override
+    public List<ViewStats> countUniqueHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<Long, Set<IpKey>> ips = collectIps(SegmentColumns.toMicros(start), SegmentColumns.toMicros(end) + 1,
+                uris);
+        Map<Long, Long> hits = new HashMap<>();
+        ips.forEach((key, values) -> hits.put(key, (long) values.size()));
+        return toViewStats(hits);
+    }
+
+    @Override
+    public List<ViewStats> findTopUniqueHits(LocalDateTime start, LocalDateTime end, String uriPrefix, int limit) {
+        Map<Long, Set<IpKey>> ips = collectIps(SegmentColumns.toMicros(start), SegmentColumns.toMicros(end) + 1,
+                null);
+        Map<Integer, String> uris = uriPrefix == null ? Map.of() : dictionaryRepository.findUris(ips.keySet().stream()
+                .map(SegmentHitStore::uriId)
+                .collect(Collectors.toSet()));
+        TopN<Map.Entry<Long, Long>> top = new TopN<>(limit, Map.Entry::getValue);
+        ips.forEach((key, values) -> {
+            if (uriPrefix == null || uris.get(uriId(key)).startsWith(uriPrefix)) {
+                top.offer(Map.entry(key, (long) values.size()));
+            }
+        });
+        Map<Long, Long> hits = new HashMap<>();
+        top.toList().forEach(entry -> hits.put(entry.getKey(), entry.getValue()));
+        return toViewStats(hits);
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, boolean unique, List<String> uris,
+                            Consumer<ViewStats> consumer) {
+        List<String> filter = uris == null || uris.isEmpty() ? null : uris;
+        List<ViewStats> stats = unique ? countUniqueHits(start, end, filter)
+                : countHits(start, end.plusNanos(1_000), filter);
+        stats.forEach(consumer);
+    }
+
+    @Override
+    public int deleteBefore(LocalDateTime cutoff, int limit) {
+        long to = SegmentColumns.toMicros(cutoff);
+        SealedSegment expired;
+        lock.writeLock().lock();
+        try {
+            expired = sealed.stream()
+                    .filter(segment -> segment.maxTime() < to)
+                    .findFirst()
+                    .orElse(null);
+            if (expired == null) {
+                return 0;
+            }
+            sealed.remove(expired);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Files.delete(expired.getPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return expired.size();
+    }
+
+    @Override
+    public void findDistinctIps(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                BiConsumer<StatKey, byte[]> consumer) {
+        Map<Long, Set<IpKey>> ips = collectIps(SegmentColumns.toMicros(from), SegmentColumns.toMicros(to), uris);
+        Map<Integer, String> apps = dictionaryRepository.findAppNames(ips.keySet().stream()
+                .map(SegmentHitStore::appId)
+                .collect(Collectors.toSet()));
+        Map<Integer, String> uriNames = dictionaryRepository.findUris(ips.keySet().stream()
+                .map(SegmentHitStore::uriId)
+                .collect(Collectors.toSet()));
+        ips.forEach((key, values) -> {
+            StatKey statKey = new StatKey(apps.get(appId(key)), uriNames.get(uriId(key)));
+            values.forEach(ip -> consumer.accept(statKey, ip.toBytes()));
+        });
+    }
+
+    @Override
+    public boolean isSqlBacked() {
+        return false;
+    }
+
+    private void seal() throws IOException {
+        Path segmentPath = directory.resolve("segment-" + sequence + ".seg");
+        SealedSegment segment = SealedSegment.write(segmentPath, active.snapshot());
+        sealed.add(segment);
+        Path sealedLog = active.getPath();
+        active.close();
+        Files.delete(sealedLog);
+        sequence++;
+        active = ActiveSegment.open(directory.resolve("active-" + sequence + ".log"), segmentRows);
+        log.info("Записан сегмент статистики {}, записей: {}", segmentPath.getFileName(), segment.size());
+    }
+
+    private void scan(long from, long to, List<String> uris, RowVisitor visitor) {
+        Set<Integer> uriIds = null;
+        if (uris != null) {
+            uriIds = new HashSet<>(dictionaryRepository.findUriIds(uris));
+            if (uriIds.isEmpty()) {
+                return;
+            }
+        }
+        List<SegmentColumns> segments = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            segments.addAll(sealed);
+            segments.add(active.snapshot());
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (SegmentColumns segment : segments) {
+            if (segment.size() > 0 && segment.maxTime() >= from && segment.minTime() < to) {
+                scan(segment, from, to, uriIds, visitor);
+            }
+        }
+    }
+
+    private void scan(SegmentColumns columns, long from, long to, Set<Integer> uriIds, RowVisitor visitor) {
+        int size = columns.size();
+        for (int row = columns.lowerBound(from); row < size; row++) {
+            long time = columns.time(row);
+            if (time >= to) {
+                if (columns.isSorted()) {
+                    return;
+                }
+                continue;
+            }
+            if (time >= from && (uriIds == null || uriIds.contains(columns.uriId(row)))) {
+                visitor.visit(columns, row);
+            }
+        }
+    }
+
+    private Map<Long, Set<IpKey>> collectIps(long from, long to, List<String> uris) {
+        Map<Long, Set<IpKey>> ips = new HashMap<>();
+        scan(from, to, uris, (columns, row) ->
+                ips.computeIfAbsent(key(columns.appId(row), columns.uriId(row)), key -> new HashSet<>())
+                        .add(new IpKey(columns.ipHigh(row), columns.ipLow(row))));
+        return ips;
+    }
+
+    private List<ViewStats> toViewStats(Map<Long, Long> hits) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        hits.keySet().forEach(key -> {
+            appIds.add(appId(key));
+            uriIds.add(uriId(key));
+        });
+        Map<Integer, String> apps = dictionaryRepository.findAppNames(appIds);
+        Map<Integer, String> uris = dictionaryRepository.findUris(uriIds);
+        List<ViewStats> result = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> result.add(new ViewStats(apps.get(appId(key)), uris.get(uriId(key)), count)));
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    private static long key(int appId, int uriId) {
+        return (long) appId << 32 | uriId & 0xFFFFFFFFL;
+    }
+
+    private static int appId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int uriId(long key) {
+        return (int) key;
+    }
+
+    private interface RowVisitor {
+        void visit(SegmentColumns columns, int row);
+    }
+}
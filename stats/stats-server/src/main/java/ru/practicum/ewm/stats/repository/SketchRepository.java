@@ -0,0 +1,152 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.model.HyperLogLog;
+import ru.practicum.ewm.stats.model.RollupKey;
+import ru.practicum.ewm.stats.model.TimeRange;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final Comparator<RollupKey> LOCK_ORDER = Comparator.comparing(RollupKey::getUriId)
+            .thenComparing(RollupKey::getBucket)
+            .thenComparing(RollupKey::getAppId);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void mergeAll(Map<RollupKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, HyperLogLog>> entries = new ArrayList<>(sketches.entrySet());
+        entries.sort(Map.Entry.comparingByKey(LOCK_ORDER));
+        byte[] empty = new HyperLogLog().toBytes();
+        jdbcTemplate.getJdbcTemplate().batchUpdate("INSERT INTO stats_sketch (bucket, app_id, uri_id, sketch) " +
+                        "VALUES (?, ?, ?, ?) ON CONFLICT (uri_id, bucket, app_id) DO NOTHING",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(entry.getKey().getBucket()));
+                    ps.setInt(2, entry.getKey().getAppId());
+                    ps.setInt(3, entry.getKey().getUriId());
+                    ps.setBytes(4, empty);
+                });
+        Integer[] uriIds = new Integer[entries.size()];
+        Timestamp[] buckets = new Timestamp[entries.size()];
+        Integer[] appIds = new Integer[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            uriIds[i] = entries.get(i).getKey().getUriId();
+            buckets[i] = Timestamp.valueOf(entries.get(i).getKey().getBucket());
+            appIds[i] = entries.get(i).getKey().getAppId();
+        }
+        jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT s.bucket, s.app_id, s.uri_id, s.sketch " +
+                    "FROM stats_sketch AS s " +
+                    "JOIN unnest(?, ?, ?) AS k (uri_id, bucket, app_id) " +
+                    "ON s.uri_id = k.uri_id AND s.bucket = k.bucket AND s.app_id = k.app_id " +
+                    "ORDER BY s.uri_id, s.bucket, s.app_id " +
+                    "FOR UPDATE OF s");
+            ps.setArray(1, con.createArrayOf("integer", uriIds));
+            ps.setArray(2, con.createArrayOf("timestamp", buckets));
+            ps.setArray(3, con.createArrayOf("integer", appIds));
+            return ps;
+        }, rs -> {
+            sketches.get(new RollupKey(Granularity.DAY, rs.getTimestamp("bucket").toLocalDateTime(),
+                    rs.getInt("app_id"), rs.getInt("uri_id")))
+                    .merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+        jdbcTemplate.getJdbcTemplate().batchUpdate("UPDATE stats_sketch SET sketch = ? " +
+                        "WHERE uri_id = ? AND bucket = ? AND app_id = ?",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setBytes(1, entry.getValue().toBytes());
+                    ps.setInt(2, entry.getKey().getUriId());
+                    ps.setTimestamp(3, Timestamp.valueOf(entry.getKey().getBucket()));
+                    ps.setInt(4, entry.getKey().getAppId());
+                });
+    }
+
+    public void findSketches(LocalDateTime from, LocalDateTime to, List<String> uris, RowCallbackHandler handler) {
+        MapSqlParameterSource parameters = rangeParameters(from, to, uris);
+        jdbcTemplate.query("SELECT a.name, u.uri, s.sketch " +
+                "FROM stats_sketch AS s " +
+                "JOIN stats_app AS a ON a.id = s.app_id " +
+                "JOIN stats_uri AS u ON u.id = s.uri_id " +
+                "WHERE s.bucket >= :from AND s.bucket < :to " + uriFilter(uris), parameters, handler);
+    }
+
+    public void findDistinctIps(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                RowCallbackHandler handler) {
+        MapSqlParameterSource parameters = rangeParameters(from, to, uris);
+        jdbcTemplate.query("SELECT a.name, u.uri, host(h.ip) AS ip " +
+                "FROM (SELECT DISTINCT app_id, uri_id, ip FROM stats " +
+                "WHERE created >= :from AND created < :to " + uriFilter(uris) + ") AS h " +
+                "JOIN stats_app AS a ON a.id = h.app_id " +
+                "JOIN stats_uri AS u ON u.id = h.uri_id", parameters, handler);
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.getJdbcTemplate().queryForList("SELECT 1 FROM stats_sketch LIMIT 1").isEmpty();
+    }
+
+    public void findDailyIps(LocalDateTime from, LocalDateTime to, int fetchSize, RowCallbackHandler handler) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streamingTemplate.setFetchSize(fetchSize);
+        streamingTemplate.query("SELECT DISTINCT date_trunc('day', created) AS bucket, app_id, uri_id, " +
+                "host(ip) AS ip " +
+                "FROM stats " +
+                "WHERE created >= ? AND created < ? " +
+                "ORDER BY app_id, uri_id, bucket", handler, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public Optional<LocalDateTime> findEarliestHit(LocalDateTime from) {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate().queryForObject("SELECT min(created) FROM stats " +
+                "WHERE created >= ?", Timestamp.class, Timestamp.valueOf(from))).map(Timestamp::toLocalDateTime);
+    }
+
+    public Optional<TimeRange> findBackfill() {
+        return jdbcTemplate.getJdbcTemplate().query("SELECT next_bucket, backfill_before " +
+                                "FROM stats_sketch_backfill WHERE id = 1",
+                        (rs, rowNum) -> new TimeRange(Granularity.DAY, rs.getTimestamp("next_bucket").toLocalDateTime(),
+                                rs.getTimestamp("backfill_before").toLocalDateTime()))
+                .stream()
+                .findFirst();
+    }
+
+    public void startBackfill(LocalDateTime from, LocalDateTime before) {
+        jdbcTemplate.getJdbcTemplate().update("INSERT INTO stats_sketch_backfill (id, next_bucket, backfill_before) " +
+                "VALUES (1, ?, ?) ON CONFLICT (id) DO NOTHING", Timestamp.valueOf(from), Timestamp.valueOf(before));
+    }
+
+    public void advanceBackfill(LocalDateTime next) {
+        jdbcTemplate.getJdbcTemplate().update("UPDATE stats_sketch_backfill " +
+                "SET next_bucket = GREATEST(next_bucket, ?) WHERE id = 1", Timestamp.valueOf(next));
+    }
+
+    private MapSqlParameterSource rangeParameters(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (uris != null && !uris.isEmpty()) {
+            parameters.addValue("uris", uris);
+        }
+        return parameters;
+    }
+
+    private String uriFilter(List<String> uris) {
+        return uris != null && !uris.isEmpty() ? "AND uri_id IN (SELECT id FROM stats_uri WHERE uri IN (:uris)) "
+                : "";
+    }
+}
@@ -1,22 +1,57 @@
 package ru.practicum.ewm.stats.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.dto.stats.ViewStats;
 import ru.practicum.ewm.stats.model.Hit;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface StatRepository extends JpaRepository<Hit, Long> {
-    @Query("SELECT h " +
+public interface StatRepository extends JpaRepository<Hit, Long>, HitBatchRepository {
+    @Query("SELECT new ru.practicum.ewm.dto.stats.ViewStats(a.name, u.uri, COUNT(DISTINCT h.ip)) " +
             "FROM Hit AS h " +
-            "WHERE h.created BETWEEN ?1 AND ?2 AND h.uri IN ?3 ")
-    List<Hit> findStatsWithUris(LocalDateTime start, LocalDateTime end, List<String> uris);
+            "JOIN Application AS a ON a.id = h.appId " +
+            "JOIN Endpoint AS u ON u.id = h.uriId " +
+            "WHERE h.created BETWEEN ?1 AND ?2 AND u.uri IN ?3 " +
+            "GROUP BY a.id, u.id " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC")
+    List<ViewStats> findUniqueStatsWithUris(LocalDateTime start, LocalDateTime end, List<String> uris);
 
-    @Query("SELECT h " +
+    @Query("SELECT new ru.practicum.ewm.dto.stats.ViewStats(a.name, u.uri, COUNT(DISTINCT h.ip)) " +
             "FROM Hit AS h " +
-            "WHERE h.created BETWEEN ?1 AND ?2 ")
-    List<Hit> findStatsWithoutUris(LocalDateTime start, LocalDateTime end);
+            "JOIN Application AS a ON a.id = h.appId " +
+            "JOIN Endpoint AS u ON u.id = h.uriId " +
+            "WHERE h.created BETWEEN ?1 AND ?2 " +
+            "GROUP BY a.id, u.id " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC")
+    List<ViewStats> findUniqueStatsWithoutUris(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT new ru.practicum.ewm.dto.stats.ViewStats(a.name, u.uri, SUM(h.weight)) " +
+            "FROM Hit AS h " +
+            "JOIN Application AS a ON a.id = h.appId " +
+            "JOIN Endpoint AS u ON u.id = h.uriId " +
+            "WHERE h.created >= ?1 AND h.created < ?2 AND u.uri IN ?3 " +
+            "GROUP BY a.id, u.id")
+    List<ViewStats> countInRangeWithUris(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    @Query("SELECT new ru.practicum.ewm.dto.stats.ViewStats(a.name, u.uri, SUM(h.weight)) " +
+            "FROM Hit AS h " +
+            "JOIN Application AS a ON a.id = h.appId " +
+            "JOIN Endpoint AS u ON u.id = h.uriId " +
+            "WHERE h.created >= ?1 AND h.created < ?2 " +
+            "GROUP BY a.id, u.id")
+    List<ViewStats> countInRangeWithoutUris(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT new ru.practicum.ewm.dto.stats.ViewStats(a.name, u.uri, COUNT(DISTINCT h.ip)) " +
+            "FROM Hit AS h " +
+            "JOIN Application AS a ON a.id = h.appId " +
+            "JOIN Endpoint AS u ON u.id = h.uriId " +
+            "WHERE h.created BETWEEN ?1 AND ?2 AND u.uri LIKE ?3 " +
+            "GROUP BY a.id, u.id " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC")
+    List<ViewStats> findTopUniqueStats(LocalDateTime start, LocalDateTime end, String uriPattern, Pageable pageable);
 }
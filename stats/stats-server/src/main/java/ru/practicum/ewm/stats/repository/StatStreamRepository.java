@@ -0,0 +1,49 @@
+package ru.practicum.ewm.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.dto.stats.ViewStats;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class StatStreamRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StatStreamRepository(DataSource dataSource, @Value("${stats.stream.fetch-size}") int fetchSize) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+    }
+
+    public void streamStats(LocalDateTime start, LocalDateTime end, boolean unique, List<String> uris,
+                            Consumer<ViewStats> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            uriFilter = "AND uri_id IN (SELECT id FROM stats_uri WHERE uri IN (:uris)) ";
+            parameters.addValue("uris", uris);
+        }
+        String hits = unique ? "COUNT(DISTINCT ip)" : "SUM(weight)";
+        jdbcTemplate.query("SELECT a.name, u.uri, h.hits " +
+                        "FROM (SELECT app_id, uri_id, " + hits + " AS hits " +
+                        "FROM stats " +
+                        "WHERE created BETWEEN :start AND :end " + uriFilter +
+                        "GROUP BY app_id, uri_id) AS h " +
+                        "JOIN stats_app AS a ON a.id = h.app_id " +
+                        "JOIN stats_uri AS u ON u.id = h.uri_id " +
+                        "ORDER BY h.hits DESC",
+                parameters, rs -> {
+                    consumer.accept(new ViewStats(rs.getString("name"), rs.getString("uri"), rs.getLong("hits")));
+                });
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.repository.CompactionRepository;
+import ru.practicum.ewm.stats.repository.HitStore;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+
+@Service
+@Slf4j
+public class CompactionService {
+    private final CompactionRepository compactionRepository;
+    private final HitStore hitStore;
+    private final UniqueSketchService uniqueSketchService;
+    private final boolean enabled;
+    private final int rawAgeDays;
+    private final int chunkSize;
+    private volatile LocalDateTime compactedBefore;
+
+    public CompactionService(CompactionRepository compactionRepository,
+                             HitStore hitStore,
+                             UniqueSketchService uniqueSketchService,
+                             @Value("${stats.compaction.enabled}") boolean enabled,
+                             @Value("${stats.compaction.raw-age-days}") int rawAgeDays,
+                             @Value("${stats.compaction.chunk-size}") int chunkSize) {
+        this.compactionRepository = compactionRepository;
+        this.hitStore = hitStore;
+        this.uniqueSketchService = uniqueSketchService;
+        this.enabled = enabled;
+        this.rawAgeDays = rawAgeDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        compactedBefore = compactionRepository.findWatermark().orElse(null);
+    }
+
+    public boolean isCompacted(LocalDateTime start) {
+        LocalDateTime watermark = compactedBefore;
+        return watermark != null && start.isBefore(watermark);
+    }
+
+    @Scheduled(cron = "${stats.compaction.cron}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        if (!uniqueSketchService.isBackfilled()) {
+            log.warn("Компакция статистики отложена: HyperLogLog-скетчи по существующей статистике ещё строятся");
+            return;
+        }
+        compactionRepository.advanceWatermark(Granularity.DAY.floor(LocalDateTime.now().minusDays(rawAgeDays)));
+        LocalDateTime watermark = compactionRepository.findWatermark().orElseThrow();
+        compactedBefore = watermark;
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = hitStore.deleteBefore(watermark, chunkSize);
+            deleted += chunk;
+        } while (chunk > 0);
+        log.info("Компакция статистики до {} завершена, удалено сырых хитов: {}", watermark, deleted);
+    }
+}
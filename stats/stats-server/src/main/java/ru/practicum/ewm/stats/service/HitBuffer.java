@@ -0,0 +1,317 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import ru.practicum.ewm.stats.errorhandling.IngestionOverloadException;
+import ru.practicum.ewm.stats.model.Hit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Slf4j
+public class HitBuffer {
+    private final HitWriter hitWriter;
+    private final boolean enabled;
+    private final boolean async;
+    private final int capacity;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final int flushRetries;
+    private final long flushRetryBackoffMs;
+    private final BlockingQueue<PendingHit> queue;
+    private final ReentrantLock offerLock = new ReentrantLock();
+    private final Condition spaceAvailable = offerLock.newCondition();
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile boolean abandoned;
+
+    public HitBuffer(HitWriter hitWriter,
+                     @Value("${stats.ingestion.buffered}") boolean enabled,
+                     @Value("${stats.ingestion.async}") boolean async,
+                     @Value("${stats.ingestion.buffer-capacity}") int capacity,
+                     @Value("${stats.ingestion.flush-size}") int flushSize,
+                     @Value("${stats.ingestion.flush-interval-ms}") long flushIntervalMs,
+                     @Value("${stats.ingestion.offer-timeout-ms}") long offerTimeoutMs,
+                     @Value("${stats.ingestion.shutdown-timeout-ms}") long shutdownTimeoutMs,
+                     @Value("${stats.ingestion.flush-retries}") int flushRetries,
+                     @Value("${stats.ingestion.flush-retry-backoff-ms}") long flushRetryBackoffMs) {
+        this.hitWriter = hitWriter;
+        this.enabled = enabled;
+        this.async = async;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.flushRetries = flushRetries;
+        this.flushRetryBackoffMs = flushRetryBackoffMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drainLoop, "stats-hit-writer");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled || async) {
+            running = true;
+            writer.start();
+            log.info("Буферизованная запись статистики включена, размер пакета: {}, асинхронный режим: {}",
+                    flushSize, async);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public CompletableFuture<Void> submit(List<Hit> hits) {
+        PendingRequest request = new PendingRequest(hits.size());
+        List<PendingHit> pending = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            pending.add(new PendingHit(hit, request));
+        }
+        try {
+            if (!enqueue(pending, 0)) {
+                request.written.completeExceptionally(
+                        new IngestionOverloadException("Буфер записи статистики переполнен"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.written.completeExceptionally(new IngestionOverloadException("Запись статистики прервана"));
+        }
+        return request.written;
+    }
+
+    public void add(List<Hit> hits) {
+        List<PendingHit> pending = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            pending.add(new PendingHit(hit, null));
+        }
+        try {
+            if (!enqueue(pending, offerTimeoutMs)) {
+                throw new IngestionOverloadException("Буфер записи статистики переполнен");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionOverloadException("Запись статистики прервана");
+        }
+    }
+
+    private boolean enqueue(List<PendingHit> pending, long timeoutMs) throws InterruptedException {
+        if (pending.size() > capacity) {
+            return false;
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        offerLock.lockInterruptibly();
+        try {
+            while (running && queue.remainingCapacity() < pending.size()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = spaceAvailable.awaitNanos(nanos);
+            }
+            if (!running) {
+                return false;
+            }
+            queue.addAll(pending);
+            return true;
+        } finally {
+            offerLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (enabled || async) {
+            offerLock.lock();
+            try {
+                running = false;
+                spaceAvailable.signalAll();
+            } finally {
+                offerLock.unlock();
+            }
+            writer.join(shutdownTimeoutMs);
+            if (writer.isAlive()) {
+                log.warn("Запись статистики не завершилась за {} мс, оставшиеся хиты будут отброшены",
+                        shutdownTimeoutMs);
+                abandoned = true;
+                writer.join(shutdownTimeoutMs);
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingHit> batch = new ArrayList<>(flushSize);
+        while ((running || !queue.isEmpty()) && !abandoned) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            signalSpace();
+            flush(batch);
+        }
+        failLeftovers();
+    }
+
+    private void failLeftovers() {
+        List<PendingHit> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            log.error("При остановке не записано хитов: {}", left.size());
+            IngestionOverloadException e = new IngestionOverloadException("Сервис статистики остановлен");
+            left.forEach(pending -> pending.failed(e));
+        }
+    }
+
+    private void collect(List<PendingHit> batch) throws InterruptedException {
+        PendingHit first = running ? queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS) : queue.poll();
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long wait = deadline - System.currentTimeMillis();
+            if (batch.size() >= flushSize || !running || wait <= 0) {
+                return;
+            }
+            PendingHit next = queue.poll(wait, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void signalSpace() {
+        offerLock.lock();
+        try {
+            spaceAvailable.signalAll();
+        } finally {
+            offerLock.unlock();
+        }
+    }
+
+    private void flush(List<PendingHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        write(batch, flushRetries);
+        batch.clear();
+    }
+
+    private void write(List<PendingHit> batch, int retries) {
+        List<Hit> hits = new ArrayList<>(batch.size());
+        for (PendingHit pending : batch) {
+            hits.add(pending.hit);
+        }
+        try {
+            hitWriter.write(hits);
+            batch.forEach(PendingHit::written);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                if (retries > 0 && backOff(flushRetries - retries + 1)) {
+                    log.warn("Не удалось записать пакет статистики, повтор, хитов: {}", batch.size(), e);
+                    write(batch, retries - 1);
+                    return;
+                }
+                log.error("Не удалось записать пакет статистики, потеряно хитов: {}", batch.size(), e);
+                batch.forEach(pending -> pending.failed(e));
+            } else if (batch.size() > 1) {
+                int middle = batch.size() / 2;
+                write(batch.subList(0, middle), retries);
+                write(batch.subList(middle, batch.size()), retries);
+            } else {
+                log.error("Хит отклонён при записи и потерян: {}", batch.get(0).hit, e);
+                batch.get(0).failed(e);
+            }
+        }
+    }
+
+    private boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(flushRetryBackoffMs * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return false;
+        }
+    }
+
+    private static class PendingHit {
+        private final Hit hit;
+        private final PendingRequest request;
+
+        PendingHit(Hit hit, PendingRequest request) {
+            this.hit = hit;
+            this.request = request;
+        }
+
+        void written() {
+            if (request != null) {
+                request.settle(null);
+            }
+        }
+
+        void failed(RuntimeException e) {
+            if (request != null) {
+                request.settle(e);
+            }
+        }
+    }
+
+    private static class PendingRequest {
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private final AtomicInteger remaining;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        PendingRequest(int hits) {
+            this.remaining = new AtomicInteger(hits);
+        }
+
+        void settle(RuntimeException e) {
+            if (e != null) {
+                failure.compareAndSet(null, e);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                if (failure.get() == null) {
+                    written.complete(null);
+                } else {
+                    written.completeExceptionally(failure.get());
+                }
+            }
+        }
+    }
+}
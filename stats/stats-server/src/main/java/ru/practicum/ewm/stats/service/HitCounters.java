@@ -0,0 +1,204 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.StatKey;
+import ru.practicum.ewm.stats.model.TimeRange;
+import ru.practicum.ewm.stats.repository.RollupRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+@Slf4j
+public class HitCounters implements HitListener {
+    private final RollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private volatile LocalDateTime firstBucket;
+    private volatile LocalDateTime afterLastBucket;
+    private volatile boolean seeded;
+
+    public HitCounters(RollupRepository rollupRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${stats.counters.enabled}") boolean enabled) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void seed() {
+        if (enabled) {
+            reconcile();
+            seeded = true;
+            log.info("Счётчики просмотров загружены, адресов: {}", counters.size());
+        }
+    }
+
+    @Override
+    public void onHits(List<Hit> hits) {
+        if (!enabled) {
+            return;
+        }
+        for (Hit hit : hits) {
+            counter(hit.getApp(), hit.getUri()).add(hit.getWeight());
+            extendCoverage(Granularity.DAY.floor(hit.getCreated()));
+        }
+    }
+
+    public Lock commitLock() {
+        return snapshotLock.readLock();
+    }
+
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (!enabled || !seeded) {
+            return false;
+        }
+        LocalDateTime first = firstBucket;
+        LocalDateTime afterLast = afterLastBucket;
+        return first == null || !start.isAfter(first) && !end.isBefore(afterLast);
+    }
+
+    public List<ViewStats> getAllTimeStats(List<String> uris) {
+        List<ViewStats> result = new ArrayList<>();
+        if (uris == null || uris.isEmpty()) {
+            counters.forEach((uri, apps) -> addStats(result, uri, apps));
+        } else {
+            uris.stream().distinct().forEach(uri -> addStats(result, uri, counters.get(uri)));
+        }
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    public Long getHits(String app, String uri) {
+        if (!enabled) {
+            return null;
+        }
+        Map<String, LongAdder> apps = counters.get(uri);
+        LongAdder hits = apps == null ? null : apps.get(app);
+        return hits == null ? 0L : hits.sum();
+    }
+
+    public List<ViewStats> getAllTimeTop(String uriPrefix, int limit) {
+        PriorityQueue<ViewStats> top = new PriorityQueue<>(limit + 1, Comparator.comparing(ViewStats::getHits));
+        counters.forEach((uri, apps) -> {
+            if (uriPrefix != null && !uri.startsWith(uriPrefix)) {
+                return;
+            }
+            apps.forEach((app, hits) -> {
+                long sum = hits.sum();
+                if (sum > 0 && (top.size() < limit || sum > top.peek().getHits())) {
+                    top.add(new ViewStats(app, uri, sum));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            });
+        });
+        List<ViewStats> result = new ArrayList<>(top);
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.counters.reconcile-interval-ms}",
+            initialDelayString = "${stats.counters.reconcile-interval-ms}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        Map<StatKey, Long> captured = new HashMap<>();
+        Map<StatKey, Long> persisted = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<TimeRange> covered;
+            snapshotLock.writeLock().lock();
+            try {
+                covered = rollupRepository.findCoveredRange(Granularity.DAY);
+                counters.forEach((uri, apps) -> apps.forEach((app, hits) ->
+                        captured.put(new StatKey(app, uri), hits.sum())));
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+            covered.ifPresent(range -> {
+                extendCoverage(range.getFrom());
+                extendCoverage(Granularity.DAY.floor(range.getTo().minusNanos(1)));
+            });
+            rollupRepository.sumAllHits(Granularity.DAY).forEach(viewStats ->
+                    persisted.put(new StatKey(viewStats.getApp(), viewStats.getUri()), viewStats.getHits()));
+        });
+        long drift = 0;
+        for (Map.Entry<StatKey, Long> entry : captured.entrySet()) {
+            long delta = persisted.getOrDefault(entry.getKey(), 0L) - entry.getValue();
+            if (delta != 0) {
+                counter(entry.getKey().getApp(), entry.getKey().getUri()).add(delta);
+                drift += Math.abs(delta);
+            }
+            persisted.remove(entry.getKey());
+        }
+        persisted.forEach((key, hits) -> counter(key.getApp(), key.getUri()).add(hits));
+        if (drift > 0) {
+            log.info("Счётчики просмотров сверены с базой, расхождение: {}", drift);
+        }
+    }
+
+    private LongAdder counter(String app, String uri) {
+        return counters.computeIfAbsent(uri, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(app, key -> new LongAdder());
+    }
+
+    private void addStats(List<ViewStats> result, String uri, Map<String, LongAdder> apps) {
+        if (apps == null) {
+            return;
+        }
+        apps.forEach((app, hits) -> {
+            long sum = hits.sum();
+            if (sum > 0) {
+                result.add(new ViewStats(app, uri, sum));
+            }
+        });
+    }
+
+    private void extendCoverage(LocalDateTime bucket) {
+        LocalDateTime first = firstBucket;
+        LocalDateTime afterLast = afterLastBucket;
+        if (first != null && !bucket.isBefore(first) && bucket.isBefore(afterLast)) {
+            return;
+        }
+        synchronized (this) {
+            widenCoverage(bucket);
+        }
+    }
+
+    private void widenCoverage(LocalDateTime bucket) {
+        if (firstBucket == null || bucket.isBefore(firstBucket)) {
+            firstBucket = bucket;
+        }
+        LocalDateTime afterBucket = Granularity.DAY.next(bucket);
+        if (afterLastBucket == null || afterBucket.isAfter(afterLastBucket)) {
+            afterLastBucket = afterBucket;
+        }
+    }
+}
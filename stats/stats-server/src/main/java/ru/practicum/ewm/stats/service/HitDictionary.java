@@ -0,0 +1,77 @@
+package ru.practicum.ewm.stats.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.repository.DictionaryRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class HitDictionary {
+    private final DictionaryRepository dictionaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int cacheSize;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public HitDictionary(DictionaryRepository dictionaryRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${stats.dictionary.cache-size}") int cacheSize) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheSize = cacheSize;
+    }
+
+    public void resolve(List<Hit> hits) {
+        Map<String, Integer> apps = new HashMap<>();
+        Map<String, Integer> uris = new HashMap<>();
+        Set<String> missingApps = new TreeSet<>();
+        Set<String> missingUris = new TreeSet<>();
+        for (Hit hit : hits) {
+            collect(appIds, hit.getApp(), apps, missingApps);
+            collect(uriIds, hit.getUri(), uris, missingUris);
+        }
+        if (!missingApps.isEmpty() || !missingUris.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                missingApps.forEach(app -> apps.put(app, dictionaryRepository.findOrCreateApp(app)));
+                missingUris.forEach(uri -> uris.put(uri, dictionaryRepository.findOrCreateUri(uri)));
+            });
+            remember(appIds, missingApps, apps);
+            remember(uriIds, missingUris, uris);
+        }
+        for (Hit hit : hits) {
+            hit.setAppId(apps.get(hit.getApp()));
+            hit.setUriId(uris.get(hit.getUri()));
+        }
+    }
+
+    private void collect(Map<String, Integer> cache, String value, Map<String, Integer> resolved,
+                         Set<String> missing) {
+        if (resolved.containsKey(value) || missing.contains(value)) {
+            return;
+        }
+        Integer id = cache.get(value);
+        if (id != null) {
+            resolved.put(value, id);
+        } else {
+            missing.add(value);
+        }
+    }
+
+    private void remember(Map<String, Integer> cache, Set<String> loaded, Map<String, Integer> resolved) {
+        for (String value : loaded) {
+            if (cache.size() >= cacheSize) {
+                return;
+            }
+            cache.put(value, resolved.get(value));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.stats.service;
+
+import ru.practicum.ewm.stats.model.Hit;
+
+import java.util.List;
+
+public interface HitListener {
+    void onHits(List<Hit> hits);
+}
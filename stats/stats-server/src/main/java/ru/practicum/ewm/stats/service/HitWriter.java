@@ -0,0 +1,75 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.RollupKey;
+import ru.practicum.ewm.stats.repository.HitStore;
+import ru.practicum.ewm.stats.repository.RollupRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HitWriter {
+    private final HitStore hitStore;
+    private final RollupRepository rollupRepository;
+    private final UniqueSketchService uniqueSketchService;
+    private final PartitionService partitionService;
+    private final HitDictionary hitDictionary;
+    private final HitCounters hitCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final List<HitListener> hitListeners;
+
+    public void write(List<Hit> hits) {
+        partitionService.ensurePartitions(hits);
+        hitDictionary.resolve(hits);
+        Lock commitLock = hitCounters.commitLock();
+        commitLock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(hits));
+            if (!hitStore.isSqlBacked()) {
+                appendAfterCommit(hits);
+            }
+            for (HitListener hitListener : hitListeners) {
+                try {
+                    hitListener.onHits(hits);
+                } catch (RuntimeException e) {
+                    log.error("Ошибка обработчика записанных хитов {}", hitListener.getClass().getSimpleName(), e);
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void persist(List<Hit> hits) {
+        Map<RollupKey, Long> rollups = new HashMap<>();
+        for (Hit hit : hits) {
+            for (Granularity granularity : Granularity.values()) {
+                rollups.merge(new RollupKey(granularity, granularity.floor(hit.getCreated()), hit.getAppId(),
+                        hit.getUriId()), (long) hit.getWeight(), Long::sum);
+            }
+        }
+        rollupRepository.addAll(rollups);
+        uniqueSketchService.record(hits);
+        if (hitStore.isSqlBacked()) {
+            hitStore.append(hits);
+        }
+    }
+
+    private void appendAfterCommit(List<Hit> hits) {
+        try {
+            hitStore.append(hits);
+        } catch (RuntimeException e) {
+            log.error("Хиты учтены в агрегатах, но не записаны в хранилище сегментов, хитов: {}", hits.size(), e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.errorhandling.IncorrectDateException;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.repository.PartitionRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class PartitionService {
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'stats_y'yyyy'm'MM");
+
+    private final PartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Set<YearMonth> existing = ConcurrentHashMap.newKeySet();
+    private volatile boolean partitioned;
+
+    public PartitionService(PartitionRepository partitionRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${stats.partition.months-ahead}") int monthsAhead,
+                            @Value("${stats.retention.months}") int retentionMonths) {
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    public void init() {
+        partitioned = partitionRepository.isPartitioned();
+        if (!partitioned) {
+            log.warn("Таблица stats не секционирована, управление секциями отключено");
+            return;
+        }
+        partitionRepository.findPartitionNames().forEach(name -> {
+            YearMonth month = parse(name);
+            if (month != null) {
+                existing.add(month);
+            }
+        });
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            ensure(current.plusMonths(i));
+        }
+    }
+
+    public void ensurePartitions(List<Hit> hits) {
+        if (!partitioned) {
+            return;
+        }
+        Set<YearMonth> months = months(hits);
+        checkMonths(months);
+        months.forEach(this::ensure);
+    }
+
+    public void checkRange(List<Hit> hits) {
+        if (partitioned) {
+            checkMonths(months(hits));
+        }
+    }
+
+    private Set<YearMonth> months(List<Hit> hits) {
+        return hits.stream()
+                .map(hit -> YearMonth.from(hit.getCreated()))
+                .collect(Collectors.toSet());
+    }
+
+    private void checkMonths(Set<YearMonth> months) {
+        YearMonth current = YearMonth.now();
+        YearMonth latest = current.plusMonths(monthsAhead);
+        YearMonth oldest = retentionMonths > 0 ? current.minusMonths(retentionMonths) : null;
+        for (YearMonth month : months) {
+            if (month.isAfter(latest)) {
+                throw new IncorrectDateException(String.format("Дата хита слишком далеко в будущем: %s, " +
+                        "принимаются месяцы не позднее %s", month, latest));
+            }
+            if (oldest != null && month.isBefore(oldest)) {
+                throw new IncorrectDateException(String.format("Дата хита старше срока хранения: %s, " +
+                        "принимаются месяцы не ранее %s", month, oldest));
+            }
+        }
+    }
+
+    @Scheduled(cron = "${stats.partition.maintenance-cron}")
+    public void maintain() {
+        if (!partitioned) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            ensure(current.plusMonths(i));
+        }
+        if (retentionMonths <= 0) {
+            return;
+        }
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String name : partitionRepository.findPartitionNames()) {
+            YearMonth month = parse(name);
+            if (month != null && month.isBefore(oldestKept)) {
+                transactionTemplate.executeWithoutResult(status -> partitionRepository.dropPartition(name));
+                existing.remove(month);
+                log.info("Удалена устаревшая секция статистики {}", name);
+            }
+        }
+    }
+
+    private void ensure(YearMonth month) {
+        if (existing.contains(month)) {
+            return;
+        }
+        synchronized (existing) {
+            if (!existing.contains(month)) {
+                transactionTemplate.executeWithoutResult(status ->
+                        partitionRepository.createMonthPartition(PARTITION_NAME.format(month.atDay(1)), month));
+                existing.add(month);
+            }
+        }
+    }
+
+    private YearMonth parse(String name) {
+        try {
+            return YearMonth.parse(name, PARTITION_NAME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
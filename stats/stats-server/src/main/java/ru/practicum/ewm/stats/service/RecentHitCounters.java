@@ -0,0 +1,148 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.errorhandling.FeatureDisabledException;
+import ru.practicum.ewm.stats.errorhandling.IncorrectDateException;
+import ru.practicum.ewm.stats.model.Hit;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class RecentHitCounters implements HitListener {
+    private final boolean enabled;
+    private final int windowMinutes;
+    private final Map<String, Map<String, MinuteRing>> rings = new ConcurrentHashMap<>();
+
+    public RecentHitCounters(@Value("${stats.recent.enabled}") boolean enabled,
+                             @Value("${stats.recent.window-minutes}") int windowMinutes) {
+        this.enabled = enabled;
+        this.windowMinutes = windowMinutes;
+    }
+
+    @Override
+    public void onHits(List<Hit> hits) {
+        if (!enabled) {
+            return;
+        }
+        long oldest = currentMinute() - windowMinutes;
+        for (Hit hit : hits) {
+            long minute = toMinute(hit.getCreated());
+            if (minute > oldest) {
+                add(hit.getApp(), hit.getUri(), minute, hit.getWeight());
+            }
+        }
+    }
+
+    public List<ViewStats> getRecentStats(int minutes, List<String> uris) {
+        if (!enabled) {
+            throw new FeatureDisabledException("Счётчики недавних просмотров отключены");
+        }
+        if (minutes > windowMinutes) {
+            throw new IncorrectDateException("Окно не может превышать " + windowMinutes + " минут");
+        }
+        long now = currentMinute();
+        List<ViewStats> result = new ArrayList<>();
+        if (uris == null || uris.isEmpty()) {
+            rings.forEach((uri, apps) -> addStats(result, uri, apps, now, minutes));
+        } else {
+            uris.stream().distinct().forEach(uri -> addStats(result, uri, rings.get(uri), now, minutes));
+        }
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.recent.prune-interval-ms}")
+    public void prune() {
+        long oldest = currentMinute() - windowMinutes;
+        int[] removed = new int[1];
+        for (String uri : rings.keySet()) {
+            rings.computeIfPresent(uri, (key, apps) -> {
+                int before = apps.size();
+                apps.values().removeIf(ring -> ring.isIdleSince(oldest));
+                removed[0] += before - apps.size();
+                return apps.isEmpty() ? null : apps;
+            });
+        }
+        if (removed[0] > 0) {
+            log.debug("Удалены неактивные счётчики недавних просмотров: {}", removed[0]);
+        }
+    }
+
+    private void add(String app, String uri, long minute, long hits) {
+        rings.compute(uri, (key, apps) -> {
+            Map<String, MinuteRing> counters = apps == null ? new ConcurrentHashMap<>() : apps;
+            counters.computeIfAbsent(app, name -> new MinuteRing(windowMinutes)).add(minute, hits);
+            return counters;
+        });
+    }
+
+    private void addStats(List<ViewStats> result, String uri, Map<String, MinuteRing> apps, long now, int minutes) {
+        if (apps == null) {
+            return;
+        }
+        apps.forEach((app, ring) -> {
+            long sum = ring.sum(now, minutes);
+            if (sum > 0) {
+                result.add(new ViewStats(app, uri, sum));
+            }
+        });
+    }
+
+    private long currentMinute() {
+        return toMinute(LocalDateTime.now());
+    }
+
+    private long toMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static class MinuteRing {
+        private final long[] minutes;
+        private final long[] counts;
+        private long latest = Long.MIN_VALUE;
+
+        MinuteRing(int size) {
+            minutes = new long[size];
+            counts = new long[size];
+        }
+
+        synchronized void add(long minute, long hits) {
+            int slot = (int) Math.floorMod(minute, (long) minutes.length);
+            if (minutes[slot] != minute) {
+                if (minutes[slot] > minute && counts[slot] > 0) {
+                    return;
+                }
+                minutes[slot] = minute;
+                counts[slot] = 0;
+            }
+            counts[slot] += hits;
+            latest = Math.max(latest, minute);
+        }
+
+        synchronized long sum(long now, int window) {
+            long sum = 0;
+            for (long minute = now - window + 1; minute <= now; minute++) {
+                int slot = (int) Math.floorMod(minute, (long) minutes.length);
+                if (minutes[slot] == minute) {
+                    sum += counts[slot];
+                }
+            }
+            return sum;
+        }
+
+        synchronized boolean isIdleSince(long minute) {
+            return latest <= minute;
+        }
+    }
+}
@@ -1,13 +1,32 @@
 package ru.practicum.ewm.stats.service;
 
 import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.dto.stats.ViewCount;
 import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.dto.stats.WeightedHit;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface StatService {
-    List<ViewStats> getStatsView(LocalDateTime start, LocalDateTime end, Boolean unique, List<String> uris);
+    List<ViewStats> getStatsView(LocalDateTime start, LocalDateTime end, Boolean unique, List<String> uris,
+                                 Boolean approximate);
 
-    void create(EndpointHit endpointHit);
+    List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, Boolean unique, String uriPrefix,
+                                Integer limit);
+
+    List<ViewStats> getRecentStats(Integer minutes, List<String> uris);
+
+    void streamStatsView(LocalDateTime start, LocalDateTime end, Boolean unique, List<String> uris,
+                         Consumer<ViewStats> consumer);
+
+    CompletableFuture<Void> create(EndpointHit endpointHit);
+
+    CompletableFuture<ViewCount> createAndCount(EndpointHit endpointHit);
+
+    CompletableFuture<Void> createAll(List<EndpointHit> endpointHits);
+
+    CompletableFuture<Void> createAllWeighted(List<WeightedHit> weightedHits);
 }
@@ -2,72 +2,188 @@ package ru.practicum.ewm.stats.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.dto.stats.EndpointHit;
+import ru.practicum.ewm.dto.stats.ViewCount;
 import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.dto.stats.WeightedHit;
 import ru.practicum.ewm.stats.mapper.HitMapper;
+import ru.practicum.ewm.stats.model.Granularity;
 import ru.practicum.ewm.stats.model.Hit;
-import ru.practicum.ewm.stats.repository.StatRepository;
+import ru.practicum.ewm.stats.model.StatKey;
+import ru.practicum.ewm.stats.model.TimeRange;
+import ru.practicum.ewm.stats.model.TopN;
+import ru.practicum.ewm.stats.repository.HitStore;
+import ru.practicum.ewm.stats.repository.RollupRepository;
 
 import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class StatServiceImpl implements StatService {
-    private final StatRepository statRepository;
+    private static final List<Granularity> ROLLUP_GRANULARITIES = List.of(Granularity.DAY, Granularity.HOUR,
+            Granularity.MINUTE);
+
+    private final HitStore hitStore;
+    private final RollupRepository rollupRepository;
+    private final UniqueSketchService uniqueSketchService;
+    private final HitWriter hitWriter;
+    private final HitBuffer hitBuffer;
+    private final HitCounters hitCounters;
+    private final RecentHitCounters recentHitCounters;
+    private final CompactionService compactionService;
+    private final UniqueVisitorCounters uniqueVisitorCounters;
+    private final PartitionService partitionService;
 
     @Override
     public List<ViewStats> getStatsView(LocalDateTime start, LocalDateTime end, Boolean unique,
-                                        List<String> uris) {
-        List<Hit> list;
-        if (uris == null || uris.isEmpty()) {
-            list = statRepository.findStatsWithoutUris(start, end);
-        } else {
-            list = statRepository.findStatsWithUris(start, end, uris);
+                                        List<String> uris, Boolean approximate) {
+        boolean withUris = uris != null && !uris.isEmpty();
+        if (!unique) {
+            if (hitCounters.covers(start, end)) {
+                return hitCounters.getAllTimeStats(uris);
+            }
+            return getRolledUpStats(start, end, withUris ? uris : null);
+        }
+        if (approximate || compactionService.isCompacted(start)) {
+            return uniqueSketchService.estimate(start, toExclusive(end), withUris ? uris : null);
         }
-        return convert(list, unique);
+        return hitStore.countUniqueHits(start, end, withUris ? uris : null);
     }
 
-    public List<ViewStats> convert(List<Hit> list, Boolean unique) {
-        Map<String, List<Hit>> stringListEndpointHitMap;
-        List<ViewStats> viewStatsList;
+    @Override
+    public List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, Boolean unique, String uriPrefix,
+                                       Integer limit) {
+        if (unique && compactionService.isCompacted(start)) {
+            return uniqueSketchService.estimateTop(start, toExclusive(end), uriPrefix, limit);
+        }
         if (unique) {
-            stringListEndpointHitMap = list.stream()
-                    .collect(Collectors.groupingBy(Hit::getUri));
-            viewStatsList = stringListEndpointHitMap.keySet().stream()
-                    .map(key -> ViewStats.builder()
-                            .uri(key)
-                            .app(stringListEndpointHitMap.get(key).get(0).getApp())
-                            .hits(stringListEndpointHitMap.get(key).stream()
-                                    .map(Hit::getIp)
-                                    .distinct()
-                                    .count())
-                            .build())
-                    .collect(Collectors.toList());
-            return viewStatsList.stream()
-                    .sorted(Comparator.comparing(ViewStats::getHits).reversed())
-                    .collect(Collectors.toList());
-        } else {
-            stringListEndpointHitMap = list.stream()
-                    .collect(Collectors.groupingBy(Hit::getUri));
-            viewStatsList = stringListEndpointHitMap.keySet().stream()
-                    .map(key -> ViewStats.builder()
-                            .uri(key)
-                            .app(stringListEndpointHitMap.get(key).get(0).getApp())
-                            .hits((long) stringListEndpointHitMap.get(key).size())
-                            .build())
-                    .collect(Collectors.toList());
-            return viewStatsList.stream()
-                    .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+            return hitStore.findTopUniqueHits(start, end, uriPrefix, limit);
+        }
+        if (hitCounters.covers(start, end)) {
+            return hitCounters.getAllTimeTop(uriPrefix, limit);
+        }
+        if (!hitStore.isSqlBacked()) {
+            TopN<Map.Entry<StatKey, Long>> top = new TopN<>(limit, Map.Entry::getValue);
+            sumRolledUp(start, end, null).entrySet().stream()
+                    .filter(entry -> uriPrefix == null || entry.getKey().getUri().startsWith(uriPrefix))
+                    .forEach(top::offer);
+            return top.toList().stream()
+                    .map(entry -> new ViewStats(entry.getKey().getApp(), entry.getKey().getUri(), entry.getValue()))
                     .collect(Collectors.toList());
         }
+        return rollupRepository.findTopHits(planRollups(start, end), toLikePattern(uriPrefix), limit);
     }
 
     @Override
-    public void create(EndpointHit endpointHit) {
-        statRepository.save(HitMapper.toHit(endpointHit));
+    public List<ViewStats> getRecentStats(Integer minutes, List<String> uris) {
+        return recentHitCounters.getRecentStats(minutes, uris);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStatsView(LocalDateTime start, LocalDateTime end, Boolean unique, List<String> uris,
+                                Consumer<ViewStats> consumer) {
+        if (compactionService.isCompacted(start)) {
+            getStatsView(start, end, unique, uris, false).forEach(consumer);
+            return;
+        }
+        hitStore.streamStats(start, end, unique, uris, consumer);
+    }
+
+    @Override
+    public CompletableFuture<Void> create(EndpointHit endpointHit) {
+        return write(List.of(HitMapper.toHit(endpointHit)), false);
+    }
+
+    @Override
+    public CompletableFuture<ViewCount> createAndCount(EndpointHit endpointHit) {
+        return write(List.of(HitMapper.toHit(endpointHit)), true)
+                .thenCompose(written -> uniqueVisitorCounters.getUniqueHitsAsync(endpointHit.getApp(),
+                        endpointHit.getUri()))
+                .thenApply(uniqueHits -> ViewCount.builder()
+                        .app(endpointHit.getApp())
+                        .uri(endpointHit.getUri())
+                        .hits(hitCounters.getHits(endpointHit.getApp(), endpointHit.getUri()))
+                        .uniqueHits(uniqueHits)
+                        .build());
+    }
+
+    @Override
+    public CompletableFuture<Void> createAll(List<EndpointHit> endpointHits) {
+        return write(endpointHits.stream()
+                .map(HitMapper::toHit)
+                .collect(Collectors.toList()), false);
+    }
+
+    @Override
+    public CompletableFuture<Void> createAllWeighted(List<WeightedHit> weightedHits) {
+        return write(weightedHits.stream()
+                .map(HitMapper::toHit)
+                .collect(Collectors.toList()), false);
+    }
+
+    private CompletableFuture<Void> write(List<Hit> hits, boolean awaitFlush) {
+        partitionService.checkRange(hits);
+        if (hitBuffer.isAsync() || hitBuffer.isEnabled() && awaitFlush) {
+            return hitBuffer.submit(hits);
+        }
+        if (hitBuffer.isEnabled()) {
+            hitBuffer.add(hits);
+        } else {
+            hitWriter.write(hits);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private List<ViewStats> getRolledUpStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return sumRolledUp(start, end, uris).entrySet().stream()
+                .map(entry -> new ViewStats(entry.getKey().getApp(), entry.getKey().getUri(), entry.getValue()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private Map<StatKey, Long> sumRolledUp(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<StatKey, Long> hits = new HashMap<>();
+        for (TimeRange range : planRollups(start, end)) {
+            List<ViewStats> part;
+            if (range.isRaw()) {
+                part = hitStore.countHits(range.getFrom(), range.getTo(), uris);
+            } else {
+                part = rollupRepository.sumHits(range.getGranularity(), range.getFrom(), range.getTo(), uris);
+            }
+            part.forEach(viewStats -> hits.merge(new StatKey(viewStats.getApp(), viewStats.getUri()),
+                    viewStats.getHits(), Long::sum));
+        }
+        return hits;
+    }
+
+    private List<TimeRange> planRollups(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime from = compactionService.isCompacted(start) ? Granularity.MINUTE.floor(start) : start;
+        LocalDateTime to = toExclusive(end);
+        if (compactionService.isCompacted(to)) {
+            to = Granularity.MINUTE.ceil(to);
+        }
+        return TimeRangePlanner.plan(from, to, ROLLUP_GRANULARITIES);
+    }
+
+    private LocalDateTime toExclusive(LocalDateTime end) {
+        return end.plusNanos(1_000);
+    }
+
+    private String toLikePattern(String uriPrefix) {
+        if (uriPrefix == null) {
+            return "%";
+        }
+        return uriPrefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
     }
 }
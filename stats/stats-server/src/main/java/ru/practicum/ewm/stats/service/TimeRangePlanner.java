@@ -0,0 +1,39 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.model.TimeRange;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@UtilityClass
+public class TimeRangePlanner {
+    public List<TimeRange> plan(LocalDateTime from, LocalDateTime to, List<Granularity> coarsestFirst) {
+        List<TimeRange> ranges = new ArrayList<>();
+        cover(from, to, coarsestFirst, 0, ranges);
+        return ranges;
+    }
+
+    private void cover(LocalDateTime from, LocalDateTime to, List<Granularity> granularities, int level,
+                       List<TimeRange> ranges) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == granularities.size()) {
+            ranges.add(new TimeRange(null, from, to));
+            return;
+        }
+        Granularity granularity = granularities.get(level);
+        LocalDateTime first = granularity.ceil(from);
+        LocalDateTime last = granularity.floor(to);
+        if (!first.isBefore(last)) {
+            cover(from, to, granularities, level + 1, ranges);
+            return;
+        }
+        cover(from, first, granularities, level + 1, ranges);
+        ranges.add(new TimeRange(granularity, first, last));
+        cover(last, to, granularities, level + 1, ranges);
+    }
+}
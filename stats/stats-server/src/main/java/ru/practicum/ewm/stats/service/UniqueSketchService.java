@@ -0,0 +1,155 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.dto.stats.ViewStats;
+import ru.practicum.ewm.stats.mapper.IpAddressMapper;
+import ru.practicum.ewm.stats.model.Granularity;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.HyperLogLog;
+import ru.practicum.ewm.stats.model.RollupKey;
+import ru.practicum.ewm.stats.model.StatKey;
+import ru.practicum.ewm.stats.model.TimeRange;
+import ru.practicum.ewm.stats.model.TopN;
+import ru.practicum.ewm.stats.repository.HitStore;
+import ru.practicum.ewm.stats.repository.SketchRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class UniqueSketchService {
+    private static final int BACKFILL_FETCH_SIZE = 1_000;
+    private static final int BACKFILL_CHUNK = 100;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final SketchRepository sketchRepository;
+    private final HitStore hitStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int backfillChunkDays;
+    private volatile TimeRange backfillRemaining;
+
+    public UniqueSketchService(SketchRepository sketchRepository,
+                               HitStore hitStore,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${stats.sketch.backfill-chunk-days}") int backfillChunkDays) {
+        this.sketchRepository = sketchRepository;
+        this.hitStore = hitStore;
+        this.transactionTemplate = transactionTemplate;
+        this.backfillChunkDays = backfillChunkDays;
+    }
+
+    @PostConstruct
+    public void init() {
+        backfillRemaining = transactionTemplate.execute(status -> {
+            if (sketchRepository.findBackfill().isEmpty()) {
+                LocalDateTime before = Granularity.DAY.next(Granularity.DAY.floor(LocalDateTime.now()));
+                sketchRepository.startBackfill(sketchRepository.isEmpty() ? EPOCH : before, before);
+            }
+            return sketchRepository.findBackfill().orElseThrow();
+        });
+    }
+
+    public boolean isBackfilled() {
+        TimeRange remaining = backfillRemaining;
+        return !remaining.getFrom().isBefore(remaining.getTo());
+    }
+
+    @Scheduled(fixedDelayString = "${stats.sketch.backfill-interval-ms}")
+    public void backfill() {
+        if (isBackfilled()) {
+            return;
+        }
+        TimeRange remaining = backfillRemaining;
+        LocalDateTime from = sketchRepository.findEarliestHit(remaining.getFrom())
+                .map(Granularity.DAY::floor)
+                .filter(earliest -> earliest.isBefore(remaining.getTo()))
+                .orElse(remaining.getTo());
+        LocalDateTime to = from.plusDays(backfillChunkDays).isBefore(remaining.getTo())
+                ? from.plusDays(backfillChunkDays) : remaining.getTo();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<RollupKey, HyperLogLog> chunk = new HashMap<>();
+            sketchRepository.findDailyIps(from, to, BACKFILL_FETCH_SIZE, rs -> {
+                RollupKey key = new RollupKey(Granularity.DAY, rs.getTimestamp("bucket").toLocalDateTime(),
+                        rs.getInt("app_id"), rs.getInt("uri_id"));
+                if (!chunk.containsKey(key) && chunk.size() >= BACKFILL_CHUNK) {
+                    sketchRepository.mergeAll(chunk);
+                    chunk.clear();
+                }
+                chunk.computeIfAbsent(key, k -> new HyperLogLog())
+                        .add(IpAddressMapper.toBytes(rs.getString("ip")));
+            });
+            sketchRepository.mergeAll(chunk);
+            sketchRepository.advanceBackfill(to);
+        });
+        backfillRemaining = new TimeRange(Granularity.DAY, to, remaining.getTo());
+        if (isBackfilled()) {
+            log.info("Построены HyperLogLog-скетчи по существующей статистике");
+        }
+    }
+
+    public void record(List<Hit> hits) {
+        Map<RollupKey, HyperLogLog> sketches = new HashMap<>();
+        for (Hit hit : hits) {
+            sketches.computeIfAbsent(new RollupKey(Granularity.DAY, Granularity.DAY.floor(hit.getCreated()),
+                    hit.getAppId(), hit.getUriId()), key -> new HyperLogLog())
+                    .add(IpAddressMapper.toBytes(hit.getIp()));
+        }
+        sketchRepository.mergeAll(sketches);
+    }
+
+    public List<ViewStats> estimate(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return merge(from, to, uris, null).entrySet().stream()
+                .map(entry -> toViewStats(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public List<ViewStats> estimateTop(LocalDateTime from, LocalDateTime to, String uriPrefix, int limit) {
+        TopN<ViewStats> top = new TopN<>(limit, ViewStats::getHits);
+        merge(from, to, null, uriPrefix).forEach((key, sketch) -> top.offer(toViewStats(key, sketch)));
+        return top.toList();
+    }
+
+    public Map<StatKey, HyperLogLog> mergeAllTime(List<String> uris) {
+        return merge(EPOCH, Granularity.DAY.next(Granularity.DAY.floor(LocalDateTime.now())), uris, null);
+    }
+
+    private Map<StatKey, HyperLogLog> merge(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                            String uriPrefix) {
+        Map<StatKey, HyperLogLog> sketches = new HashMap<>();
+        List<TimeRange> ranges = isBackfilled() ? TimeRangePlanner.plan(from, to, List.of(Granularity.DAY))
+                : List.of(new TimeRange(null, from, to));
+        for (TimeRange range : ranges) {
+            if (range.isRaw()) {
+                hitStore.findDistinctIps(range.getFrom(), range.getTo(), uris, (key, ip) -> {
+                    if (uriPrefix == null || key.getUri().startsWith(uriPrefix)) {
+                        sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(ip);
+                    }
+                });
+            } else {
+                sketchRepository.findSketches(range.getFrom(), range.getTo(), uris, rs -> {
+                    String uri = rs.getString("uri");
+                    if (uriPrefix == null || uri.startsWith(uriPrefix)) {
+                        sketches.computeIfAbsent(new StatKey(rs.getString("name"), uri), key -> new HyperLogLog())
+                                .merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                    }
+                });
+            }
+        }
+        return sketches;
+    }
+
+    private ViewStats toViewStats(StatKey key, HyperLogLog sketch) {
+        return new ViewStats(key.getApp(), key.getUri(), sketch.estimate(), true);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.stats.mapper.IpAddressMapper;
+import ru.practicum.ewm.stats.model.Hit;
+import ru.practicum.ewm.stats.model.HyperLogLog;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class UniqueVisitorCounters implements HitListener {
+    private final UniqueSketchService uniqueSketchService;
+    private final boolean enabled;
+    private final Map<String, UriVisitors> visitors;
+    private final ExecutorService loadExecutor;
+
+    public UniqueVisitorCounters(UniqueSketchService uniqueSketchService,
+                                 @Value("${stats.visitors.enabled}") boolean enabled,
+                                 @Value("${stats.visitors.max-uris}") int maxUris,
+                                 @Value("${stats.visitors.load-threads}") int loadThreads,
+                                 @Value("${stats.visitors.load-queue-capacity}") int loadQueueCapacity) {
+        this.uniqueSketchService = uniqueSketchService;
+        this.enabled = enabled;
+        this.visitors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UriVisitors> eldest) {
+                return size() > maxUris;
+            }
+        };
+        this.loadExecutor = new ThreadPoolExecutor(loadThreads, loadThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(loadQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "stats-visitors-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdown();
+    }
+
+    @Override
+    public void onHits(List<Hit> hits) {
+        if (!enabled) {
+            return;
+        }
+        for (Hit hit : hits) {
+            UriVisitors tracked;
+            synchronized (visitors) {
+                tracked = visitors.get(hit.getUri());
+            }
+            if (tracked != null) {
+                tracked.add(hit.getApp(), IpAddressMapper.toBytes(hit.getIp()));
+            }
+        }
+    }
+
+    public CompletableFuture<Long> getUniqueHitsAsync(String app, String uri) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> getUniqueHits(app, uri), loadExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь подсчёта уникальных посетителей переполнена, URI {} отдан без счётчика", uri);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private Long getUniqueHits(String app, String uri) {
+        if (!uniqueSketchService.isBackfilled()) {
+            return null;
+        }
+        UriVisitors tracked;
+        synchronized (visitors) {
+            tracked = visitors.computeIfAbsent(uri, key -> new UriVisitors());
+        }
+        tracked.load(uri);
+        return tracked.count(app);
+    }
+
+    private class UriVisitors {
+        private final Map<String, HyperLogLog> apps = new ConcurrentHashMap<>();
+        private boolean loaded;
+
+        synchronized void load(String uri) {
+            if (loaded) {
+                return;
+            }
+            uniqueSketchService.mergeAllTime(List.of(uri))
+                    .forEach((key, sketch) -> merge(key.getApp(), sketch));
+            loaded = true;
+            log.debug("Уникальные посетители URI {} загружены из скетчей, приложений: {}", uri, apps.size());
+        }
+
+        void add(String app, byte[] ip) {
+            HyperLogLog sketch = apps.computeIfAbsent(app, key -> new HyperLogLog());
+            synchronized (sketch) {
+                sketch.add(ip);
+            }
+        }
+
+        long count(String app) {
+            HyperLogLog sketch = apps.get(app);
+            if (sketch == null) {
+                return 0L;
+            }
+            synchronized (sketch) {
+                return sketch.estimate();
+            }
+        }
+
+        private void merge(String app, HyperLogLog persisted) {
+            HyperLogLog sketch = apps.computeIfAbsent(app, key -> new HyperLogLog());
+            synchronized (sketch) {
+                sketch.merge(persisted);
+            }
+        }
+    }
+}
@@ -1,8 +1,65 @@
+create TABLE IF NOT EXISTS stats_app (
+    id SERIAL NOT NULL,
+    name VARCHAR(100) NOT NULL,
+    CONSTRAINT pk_stats_app PRIMARY KEY (id),
+    CONSTRAINT uq_stats_app_name UNIQUE (name)
+);
+
+create TABLE IF NOT EXISTS stats_uri (
+    id SERIAL NOT NULL,
+    uri VARCHAR(100) NOT NULL,
+    CONSTRAINT pk_stats_uri PRIMARY KEY (id),
+    CONSTRAINT uq_stats_uri_uri UNIQUE (uri)
+);
+
 create TABLE IF NOT EXISTS stats (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id BIGSERIAL NOT NULL,
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
-    application VARCHAR(100) NOT NULL,
-    uri VARCHAR(100) NOT NULL,
-    ip VARCHAR(40) NOT NULL
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip INET NOT NULL,
+    CONSTRAINT pk_stats PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+
+ALTER TABLE stats ADD COLUMN IF NOT EXISTS weight INTEGER NOT NULL DEFAULT 1;
+
+CREATE INDEX IF NOT EXISTS idx_stats_created ON stats (created);
+
+CREATE INDEX IF NOT EXISTS idx_stats_uri_created ON stats (uri_id, created);
+
+create TABLE IF NOT EXISTS stats_rollup (
+    granularity VARCHAR(10) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_stats_rollup PRIMARY KEY (granularity, uri_id, bucket, app_id)
+);
+
+INSERT INTO stats_rollup (granularity, bucket, app_id, uri_id, hits)
+SELECT g.granularity, date_trunc(lower(g.granularity), s.created), s.app_id, s.uri_id, SUM(s.weight)
+FROM stats AS s
+CROSS JOIN (VALUES ('MINUTE'), ('HOUR'), ('DAY')) AS g (granularity)
+WHERE NOT EXISTS (SELECT 1 FROM stats_rollup)
+GROUP BY g.granularity, date_trunc(lower(g.granularity), s.created), s.app_id, s.uri_id;
+
+create TABLE IF NOT EXISTS stats_sketch (
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    sketch BYTEA NOT NULL,
+    CONSTRAINT pk_stats_sketch PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+create TABLE IF NOT EXISTS stats_sketch_backfill (
+    id INTEGER NOT NULL,
+    next_bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    backfill_before TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_stats_sketch_backfill PRIMARY KEY (id)
 );
 
+create TABLE IF NOT EXISTS stats_compaction (
+    id INTEGER NOT NULL,
+    compacted_before TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_stats_compaction PRIMARY KEY (id)
+);